@@ -0,0 +1,62 @@
+package io.github.rieske.cdc;
+
+import java.util.function.Consumer;
+
+/**
+ * A consumer of replication stream messages that decides up to which message the stream can be acknowledged.
+ * Consumers that hold on to messages (e.g. batching ones) report an earlier message until the held ones are processed.
+ * Messages are identified by their {@link Wal2JsonMessage#sequence()} rather than by their LSN, since the LSNs of
+ * the changes are not in the order of delivery when transactions interleave.
+ * All methods are called on the replication stream listener thread.
+ */
+interface AcknowledgingConsumer extends Consumer<Wal2JsonMessage> {
+
+    /**
+     * @return the sequence number of the message up to which all consumed messages have been processed and can be
+     * acknowledged, 0 if none yet. A message that failed to be consumed counts as processed, like in the baseline
+     * the failure is logged and skipped - unless the consumer deliberately stops demanding messages before it.
+     */
+    long processedSequence();
+
+    /**
+     * Called when there are no pending messages in the replication stream.
+     */
+    default void onIdle() {
+    }
+
+    /**
+     * @return false if the consumer can not accept more messages yet - the replication stream is not read until it can.
+     */
+    default boolean hasDemand() {
+        return true;
+    }
+
+    /**
+     * Called when the replication stream fails and the listener stops.
+     */
+    default void onStreamFailure(Exception failure) {
+    }
+
+    /**
+     * @return a consumer that considers each message processed once the given delegate returns.
+     */
+    static AcknowledgingConsumer immediate(Consumer<? super Wal2JsonMessage> delegate) {
+        return new AcknowledgingConsumer() {
+            private long processedSequence;
+
+            @Override
+            public void accept(Wal2JsonMessage message) {
+                try {
+                    delegate.accept(message);
+                } finally {
+                    processedSequence = message.sequence();
+                }
+            }
+
+            @Override
+            public long processedSequence() {
+                return processedSequence;
+            }
+        };
+    }
+}
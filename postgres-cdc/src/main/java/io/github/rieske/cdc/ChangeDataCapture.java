@@ -29,13 +29,283 @@ public interface ChangeDataCapture {
             Set<String> tablesToListenTo,
             Consumer<DatabaseChange> consumer
     ) {
+        return create(
+                jdbcUrl,
+                databaseUser,
+                databasePassword,
+                replicationSlotName,
+                tablesToListenTo,
+                StreamOptions.defaults(),
+                consumer
+        );
+    }
+
+    /**
+     * Create an instance of ChangeDataCapture service with tuned stream options.
+     *
+     * @param jdbcUrl JDBC URL of the database to stream changes from
+     * @param databaseUser the database user
+     * @param databasePassword the database password
+     * @param replicationSlotName name of the replication slot to use. The replication slot must be created before starting to stream the changes.
+     * @param tablesToListenTo a Set of tables to stream changes from. Format: "schema.table"
+     * @param streamOptions the stream tuning options.
+     * @param consumer the consumer where changes will be streamed to.
+     *
+     * @return a ChangeDataCapture instance. Call the start() method to start streaming changes to the consumer.
+     */
+    static ChangeDataCapture create(
+            String jdbcUrl,
+            String databaseUser,
+            String databasePassword,
+            String replicationSlotName,
+            Set<String> tablesToListenTo,
+            StreamOptions streamOptions,
+            Consumer<DatabaseChange> consumer
+    ) {
+        return new PostgresReplicationListener(
+                jdbcUrl,
+                databaseUser,
+                databasePassword,
+                replicationSlotName,
+                tablesToListenTo,
+                streamOptions,
+                streamOptions.coalescingWindow() == null
+                        ? AcknowledgingConsumer.immediate(new JsonDeserializingConsumer(consumer, streamOptions.largeValueThreshold()))
+                        : new CoalescingConsumer(
+                                consumer,
+                                streamOptions.largeValueThreshold(),
+                                streamOptions.coalescingWindow(),
+                                streamOptions.coalescingMaxChanges()
+                        )
+        );
+    }
+
+    /**
+     * Create an instance of ChangeDataCapture service that streams raw wal2json messages without deserializing them.
+     * Useful when the changes are relayed further as JSON, as it avoids the cost of parsing each change into a DatabaseChange.
+     *
+     * @param jdbcUrl JDBC URL of the database to stream changes from
+     * @param databaseUser the database user
+     * @param databasePassword the database password
+     * @param replicationSlotName name of the replication slot to use. The replication slot must be created before starting to stream the changes.
+     * @param tablesToListenTo a Set of tables to stream changes from. Format: "schema.table"
+     * @param consumer the consumer where raw changes will be streamed to.
+     *
+     * @return a ChangeDataCapture instance. Call the start() method to start streaming changes to the consumer.
+     */
+    static ChangeDataCapture createRaw(
+            String jdbcUrl,
+            String databaseUser,
+            String databasePassword,
+            String replicationSlotName,
+            Set<String> tablesToListenTo,
+            Consumer<RawDatabaseChange> consumer
+    ) {
+        return new PostgresReplicationListener(
+                jdbcUrl,
+                databaseUser,
+                databasePassword,
+                replicationSlotName,
+                tablesToListenTo,
+                StreamOptions.defaults(),
+                AcknowledgingConsumer.immediate(consumer)
+        );
+    }
+
+    /**
+     * Create an instance of ChangeDataCapture service specialized for the Transactional Outbox pattern.
+     * Only the payload and routing columns are extracted from each inserted outbox row, without deserializing the whole change.
+     * The events are grouped into batches per destination, which are delivered once they reach the max batch size
+     * or linger time. The replication stream is acknowledged only up to the events whose batches were delivered for all destinations.
+     *
+     * @param jdbcUrl JDBC URL of the database to stream changes from
+     * @param databaseUser the database user
+     * @param databasePassword the database password
+     * @param replicationSlotName name of the replication slot to use. The replication slot must be created before starting to stream the changes.
+     * @param outboxOptions the outbox table, its payload and routing columns, and the batching limits.
+     * @param consumer the consumer where batches of event payloads will be delivered to.
+     *
+     * @return a ChangeDataCapture instance. Call the start() method to start streaming changes to the consumer.
+     */
+    static ChangeDataCapture createOutbox(
+            String jdbcUrl,
+            String databaseUser,
+            String databasePassword,
+            String replicationSlotName,
+            OutboxOptions outboxOptions,
+            OutboxBatchConsumer consumer
+    ) {
+        return createOutbox(
+                jdbcUrl,
+                databaseUser,
+                databasePassword,
+                replicationSlotName,
+                outboxOptions,
+                StreamOptions.defaults(),
+                consumer
+        );
+    }
+
+    /**
+     * Create an instance of ChangeDataCapture service specialized for the Transactional Outbox pattern, with tuned stream options.
+     * Use {@link StreamOptions#withMaxInFlightBytes(long)} to bound the memory held by undelivered batches.
+     * Coalescing does not apply to outbox events, which are inserted once and never updated, so it is rejected.
+     *
+     * @param jdbcUrl JDBC URL of the database to stream changes from
+     * @param databaseUser the database user
+     * @param databasePassword the database password
+     * @param replicationSlotName name of the replication slot to use. The replication slot must be created before starting to stream the changes.
+     * @param outboxOptions the outbox table, its payload and routing columns, and the batching limits.
+     * @param streamOptions the stream tuning options.
+     * @param consumer the consumer where batches of event payloads will be delivered to.
+     *
+     * @return a ChangeDataCapture instance. Call the start() method to start streaming changes to the consumer.
+     */
+    static ChangeDataCapture createOutbox(
+            String jdbcUrl,
+            String databaseUser,
+            String databasePassword,
+            String replicationSlotName,
+            OutboxOptions outboxOptions,
+            StreamOptions streamOptions,
+            OutboxBatchConsumer consumer
+    ) {
+        if (streamOptions.coalescingWindow() != null) {
+            throw new IllegalArgumentException("Coalescing applies only to DatabaseChange consumers, not to outbox events");
+        }
         return new PostgresReplicationListener(
+                jdbcUrl,
+                databaseUser,
+                databasePassword,
+                replicationSlotName,
+                Set.of(outboxOptions.table()),
+                streamOptions,
+                new OutboxBatchingConsumer(outboxOptions, consumer)
+        );
+    }
+
+    /**
+     * Create an instance of ChangeDataCapture service that publishes changes to a {@link java.util.concurrent.Flow.Subscriber}.
+     * The replication stream is read only as far as the subscriber has requested, and a change is acknowledged only once
+     * the subscriber confirms it via {@link ChangeDataCapturePublisher#confirm(DatabaseChange)}.
+     * At most 16 MiB of changes are published without being confirmed.
+     *
+     * @param jdbcUrl JDBC URL of the database to stream changes from
+     * @param databaseUser the database user
+     * @param databasePassword the database password
+     * @param replicationSlotName name of the replication slot to use. The replication slot must be created before starting to stream the changes.
+     * @param tablesToListenTo a Set of tables to stream changes from. Format: "schema.table"
+     *
+     * @return a ChangeDataCapturePublisher instance. Subscribe to it and call the start() method to start streaming changes.
+     */
+    static ChangeDataCapturePublisher createPublisher(
+            String jdbcUrl,
+            String databaseUser,
+            String databasePassword,
+            String replicationSlotName,
+            Set<String> tablesToListenTo
+    ) {
+        return createPublisher(
                 jdbcUrl,
                 databaseUser,
                 databasePassword,
                 replicationSlotName,
                 tablesToListenTo,
-                new JsonDeserializingConsumer(consumer)
+                StreamOptions.defaults().withMaxInFlightBytes(PublishingConsumer.DEFAULT_MAX_IN_FLIGHT_BYTES)
+        );
+    }
+
+    /**
+     * Create an instance of ChangeDataCapture service that publishes changes to a {@link java.util.concurrent.Flow.Subscriber},
+     * with tuned stream options. Use {@link StreamOptions#withMaxInFlightBytes(long)} to bound the changes that are published
+     * but not confirmed yet - without a limit, a subscriber that does not confirm the changes holds on to all of them.
+     * Coalescing would confirm changes that were never published, so it is rejected.
+     *
+     * @param jdbcUrl JDBC URL of the database to stream changes from
+     * @param databaseUser the database user
+     * @param databasePassword the database password
+     * @param replicationSlotName name of the replication slot to use. The replication slot must be created before starting to stream the changes.
+     * @param tablesToListenTo a Set of tables to stream changes from. Format: "schema.table"
+     * @param streamOptions the stream tuning options.
+     *
+     * @return a ChangeDataCapturePublisher instance. Subscribe to it and call the start() method to start streaming changes.
+     */
+    static ChangeDataCapturePublisher createPublisher(
+            String jdbcUrl,
+            String databaseUser,
+            String databasePassword,
+            String replicationSlotName,
+            Set<String> tablesToListenTo,
+            StreamOptions streamOptions
+    ) {
+        if (streamOptions.coalescingWindow() != null) {
+            throw new IllegalArgumentException("Coalescing does not apply to published changes, which are confirmed by the subscriber");
+        }
+        PublishingConsumer publishingConsumer = new PublishingConsumer(streamOptions.largeValueThreshold());
+        return new PostgresReplicationPublisher(
+                new PostgresReplicationListener(
+                        jdbcUrl,
+                        databaseUser,
+                        databasePassword,
+                        replicationSlotName,
+                        tablesToListenTo,
+                        streamOptions,
+                        publishingConsumer
+                ),
+                publishingConsumer
+        );
+    }
+
+    /**
+     * Create an instance of ChangeDataCapture service that distributes the tables across several replication slots
+     * and streams them on whichever instances of the service currently own the slots.
+     * <p>
+     * Run the same configuration on every instance of the service. The tables are partitioned deterministically, and each
+     * instance claims slots through PostgreSQL advisory locks. A slot is streamed only by its current owner.
+     * Each instance claims at most its fair share of the slots - the slot count divided by the number of live instances,
+     * rounded up - and gives up the slots above it as other instances join.
+     * When an owner stops, its database session ends and another instance takes the slot over within about a second.
+     * The lock session sets its own TCP keepalives, so the slots of an owner that crashes or loses its network are
+     * taken over within about ten seconds.
+     * <p>
+     * Each table is assigned to a slot by the hash of its name, so adding or removing a table does not move the other
+     * tables, though the slot of an added table may have to be created first. Changing the slot count does move them,
+     * and since the slots confirm their positions independently, the changes of the moved tables would be skipped or
+     * replayed - it needs a migration, e.g. stopping writes to the tables until the slots are drained, and recreating
+     * the slots.
+     * <p>
+     * Changes from the same table are always streamed through the same slot, so their order is preserved.
+     * The consumer may be called concurrently for changes from different slots and must be thread-safe.
+     *
+     * @param jdbcUrl JDBC URL of the database to stream changes from
+     * @param databaseUser the database user
+     * @param databasePassword the database password
+     * @param replicationSlotNamePrefix prefix of the replication slot names. The slots are named "prefix_0", "prefix_1" and so on.
+     * @param tablesToListenTo a Set of tables to stream changes from. Format: "schema.table"
+     * @param slotCount the number of replication slots to partition the tables into. The slots that no table is assigned to are not used.
+     * @param consumer the consumer where changes will be streamed to.
+     *
+     * @return a ChangeDataCapture instance. Call the start() method to start claiming slots and streaming changes to the consumer.
+     */
+    static ChangeDataCapture createClustered(
+            String jdbcUrl,
+            String databaseUser,
+            String databasePassword,
+            String replicationSlotNamePrefix,
+            Set<String> tablesToListenTo,
+            int slotCount,
+            Consumer<DatabaseChange> consumer
+    ) {
+        StreamOptions streamOptions = StreamOptions.defaults();
+        return new ClusteredReplicationListener(
+                jdbcUrl,
+                databaseUser,
+                databasePassword,
+                replicationSlotNamePrefix,
+                tablesToListenTo,
+                slotCount,
+                streamOptions,
+                () -> AcknowledgingConsumer.immediate(new JsonDeserializingConsumer(consumer, streamOptions.largeValueThreshold()))
         );
     }
 
@@ -55,6 +325,16 @@ public interface ChangeDataCapture {
      */
     void start();
 
+    /**
+     * Start streaming database changes to the configured consumer from the given position,
+     * e.g. to skip ahead past a range of changes that can not be processed.
+     *
+     * @param startOptions where to start streaming from and whether to use a temporary replication slot.
+     *
+     * @throws IllegalArgumentException if the start options do not apply to this instance, e.g. an LSN to a clustered one.
+     */
+    void start(StartOptions startOptions);
+
     /**
      * Stop streaming database changes. Once stopped, the ChangeDateCapture instance should not be reused.
      * When used in a service, configure a JVM shutdown hook to call this method and stop the replication stream consumption gracefully.
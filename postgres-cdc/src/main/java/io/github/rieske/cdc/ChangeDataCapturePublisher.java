@@ -0,0 +1,35 @@
+package io.github.rieske.cdc;
+
+import java.util.concurrent.Flow;
+
+/**
+ * A ChangeDataCapture service that publishes database changes to a single {@link Flow.Subscriber}.
+ * <p>
+ * The replication stream is read only as far as the subscriber has requested, so a slow subscriber applies
+ * backpressure all the way to the database instead of having changes buffered in memory.
+ * The subscriber's onNext is called on the replication stream listener thread.
+ * <p>
+ * A change is acknowledged in the replication stream only once the subscriber passes it to {@link #confirm(DatabaseChange)},
+ * and the stream is acknowledged only up to the first change that is not confirmed yet, so the unprocessed changes are
+ * streamed again after a crash. Demand and confirmation are independent - a subscriber may request unbounded demand
+ * and confirm the changes as it processes them. The changes that are published but not confirmed yet are bounded
+ * by the max in-flight bytes of the stream options: once the limit is reached, no more changes are published until
+ * some are confirmed.
+ * <p>
+ * Stopping the service completes the subscription. If the replication stream fails, the subscriber is notified with onError.
+ * If onNext throws, the subscription is considered cancelled, the change is not acknowledged, and the subscriber is
+ * notified with onError.
+ * Cancelling the subscription stops the delivery of changes, but the replication connection is held until stop() is called.
+ */
+public interface ChangeDataCapturePublisher extends ChangeDataCapture, Flow.Publisher<DatabaseChange> {
+
+    /**
+     * Confirms that the subscriber has processed the change, so that the replication stream can be acknowledged past it.
+     * Changes may be confirmed in any order and from any thread. Confirming a change again has no effect.
+     *
+     * @param change a change received by the subscriber of this publisher.
+     *
+     * @throws IllegalArgumentException if the change was not published by this publisher.
+     */
+    void confirm(DatabaseChange change);
+}
@@ -0,0 +1,116 @@
+package io.github.rieske.cdc;
+
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * A condition on database changes that is evaluated directly on the replication message bytes, before the change is decoded.
+ * Changes that do not match are skipped without being decoded, and are still acknowledged in the replication stream.
+ * Predicates can be combined with {@link #and(ChangePredicate)} and {@link #or(ChangePredicate)}.
+ * <p>
+ * Column values are compared as the text that wal2json renders them with - e.g. numeric columns as "42.00" for DECIMAL(18, 2),
+ * and booleans as "true"/"false". A null column value does not match any condition on that column.
+ */
+public final class ChangePredicate {
+
+    private final Predicate<Wal2JsonMessage> matcher;
+
+    private ChangePredicate(Predicate<Wal2JsonMessage> matcher) {
+        this.matcher = matcher;
+    }
+
+    /**
+     * @param table the table the changes must originate from. Format: "schema.table"
+     *
+     * @return a predicate matching the changes from the given table.
+     */
+    public static ChangePredicate table(String table) {
+        int separator = table.indexOf('.');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Table must be qualified with its schema, got " + table);
+        }
+        String schemaName = table.substring(0, separator);
+        String tableName = table.substring(separator + 1);
+        return new ChangePredicate(message -> tableName.equals(message.table()) && schemaName.equals(message.schema()));
+    }
+
+    /**
+     * @param actions the actions that must have caused the changes.
+     *
+     * @return a predicate matching the changes caused by any of the given actions.
+     */
+    public static ChangePredicate action(DatabaseChange.Action... actions) {
+        Set<DatabaseChange.Action> expectedActions = EnumSet.noneOf(DatabaseChange.Action.class);
+        for (DatabaseChange.Action action : actions) {
+            expectedActions.add(Objects.requireNonNull(action, "action"));
+        }
+        return new ChangePredicate(message -> expectedActions.contains(message.action()));
+    }
+
+    /**
+     * @param column the column name.
+     * @param value the value the column must have.
+     *
+     * @return a predicate matching the changes where the given column has exactly the given value.
+     */
+    public static ChangePredicate columnEquals(String column, String value) {
+        return column(column, value, false);
+    }
+
+    /**
+     * @param column the column name.
+     * @param prefix the prefix the column value must start with.
+     *
+     * @return a predicate matching the changes where the given column value starts with the given prefix.
+     */
+    public static ChangePredicate columnStartsWith(String column, String prefix) {
+        return column(column, prefix, true);
+    }
+
+    /**
+     * @param other the other predicate.
+     *
+     * @return a predicate matching the changes that match both this and the other predicate.
+     */
+    public ChangePredicate and(ChangePredicate other) {
+        return new ChangePredicate(matcher.and(other.matcher));
+    }
+
+    /**
+     * @param other the other predicate.
+     *
+     * @return a predicate matching the changes that match this or the other predicate.
+     */
+    public ChangePredicate or(ChangePredicate other) {
+        return new ChangePredicate(matcher.or(other.matcher));
+    }
+
+    Predicate<Wal2JsonMessage> matcher() {
+        return matcher;
+    }
+
+    private static ChangePredicate column(String column, String value, boolean prefix) {
+        byte[] name = Wal2JsonReader.escaped(Objects.requireNonNull(column, "column"));
+        byte[] expected = Wal2JsonReader.escaped(Objects.requireNonNull(value, "value"));
+        return new ChangePredicate(message -> columnMatches(message.reader(), name, expected, prefix));
+    }
+
+    private static boolean columnMatches(Wal2JsonReader reader, byte[] name, byte[] expected, boolean prefix) {
+        reader.beginObject();
+        while (reader.nextField()) {
+            if (!reader.fieldIs(Wal2JsonReader.COLUMNS) && !reader.fieldIs(Wal2JsonReader.IDENTITY)) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginColumns();
+            while (reader.nextColumn()) {
+                if (reader.columnNameIs(name)) {
+                    return reader.readValueMatches(expected, prefix);
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,387 @@
+package io.github.rieske.cdc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Partitions the tables across several replication slots and streams each slot on the cluster node that owns it.
+ * <p>
+ * Each node holds a single lock session. The session holds a shared membership lock, so that the nodes can count the
+ * live members of the cluster, and a session-level advisory lock per owned slot. A node claims slots up to its fair
+ * share of them and gives up the ones above it, so the slots are spread across the nodes and rebalanced as nodes join
+ * and leave. When a node stops, its session ends, its locks are released, and the other nodes take its slots over on
+ * their next claim attempt. The lock session sets its own TCP keepalives, so that the server also drops the session
+ * of a node that crashed or lost its network within about ten seconds.
+ */
+class ClusteredReplicationListener implements ChangeDataCapture {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClusteredReplicationListener.class);
+
+    // first keys of the two-key advisory locks, namespacing the locks taken by this library
+    private static final int ADVISORY_LOCK_NAMESPACE = 0x43444331;
+    private static final int MEMBERSHIP_LOCK_NAMESPACE = 0x43444332;
+
+    // the server probes an idle session after 4 seconds of silence, 3 times 2 seconds apart
+    private static final int TCP_KEEPALIVES_IDLE_SECONDS = 4;
+    private static final int TCP_KEEPALIVES_INTERVAL_SECONDS = 2;
+    private static final int TCP_KEEPALIVES_COUNT = 3;
+
+    private static final Duration CLAIM_INTERVAL = Duration.ofSeconds(1);
+
+    private final PostgresConnections connections;
+    private final List<SlotPartition> partitions;
+    // second key of the membership lock, shared by the nodes with the same slot name prefix
+    private final int membershipKey;
+    private final StreamOptions streamOptions;
+    private final Supplier<AcknowledgingConsumer> consumerFactory;
+
+    private final ScheduledExecutorService claimExecutor;
+    private final ExecutorService replicationStreamExecutor;
+
+    // used only by the claim thread, and by stop() once the claim thread has stopped
+    private Connection lockSession;
+
+    ClusteredReplicationListener(
+            String jdbcUrl,
+            String databaseUser,
+            String databasePassword,
+            String replicationSlotNamePrefix,
+            Set<String> tablesToListenTo,
+            int slotCount,
+            StreamOptions streamOptions,
+            Supplier<AcknowledgingConsumer> consumerFactory
+    ) {
+        if (slotCount < 1) {
+            throw new IllegalArgumentException("Slot count must be positive, got " + slotCount);
+        }
+        this.connections = new PostgresConnections(jdbcUrl, databaseUser, databasePassword);
+        this.partitions = partition(replicationSlotNamePrefix, tablesToListenTo, slotCount);
+        // non-negative, so that it matches the objid (an unsigned oid) in pg_locks
+        this.membershipKey = replicationSlotNamePrefix.hashCode() & Integer.MAX_VALUE;
+        this.streamOptions = streamOptions;
+        this.consumerFactory = consumerFactory;
+
+        this.claimExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+            thread.setName("replication-slot-claimer");
+            return thread;
+        });
+        this.replicationStreamExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+            thread.setName("replication-stream-listener");
+            return thread;
+        });
+        Runtime.getRuntime().addShutdownHook(new Thread(this::stopListeners));
+    }
+
+    /**
+     * Assigns each table to a slot by the hash of its name, so that every node with the same configuration arrives at
+     * the same partitioning, and adding or removing a table does not move the other tables to other slots.
+     * The slots that no table is assigned to are left out.
+     * Changing the slot count moves the tables to slots with different confirmed positions, so it needs a migration.
+     */
+    private static List<SlotPartition> partition(String replicationSlotNamePrefix, Set<String> tablesToListenTo, int slotCount) {
+        Map<Integer, Set<String>> tablesBySlot = new TreeMap<>();
+        for (String table : tablesToListenTo) {
+            // String.hashCode() is specified, so it is the same on every node
+            tablesBySlot.computeIfAbsent(Math.floorMod(table.hashCode(), slotCount), slot -> new HashSet<>()).add(table);
+        }
+        List<SlotPartition> partitions = new ArrayList<>(tablesBySlot.size());
+        tablesBySlot.forEach((slot, tables) -> partitions.add(new SlotPartition(replicationSlotNamePrefix + "_" + slot, tables)));
+        return partitions;
+    }
+
+    @Override
+    public void createReplicationSlot() {
+        for (SlotPartition partition : partitions) {
+            connections.createReplicationSlot(partition.replicationSlotName);
+        }
+    }
+
+    @Override
+    public void dropReplicationSlot() {
+        for (SlotPartition partition : partitions) {
+            connections.dropReplicationSlot(partition.replicationSlotName);
+        }
+    }
+
+    @Override
+    public void start() {
+        LOGGER.info("Starting to claim {} replication slots", partitions.size());
+        claimExecutor.scheduleWithFixedDelay(this::claimSlots, 0, CLAIM_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * The slots are claimed by whichever nodes get them first and are taken over by other nodes later, so the clustered
+     * listener always resumes from the positions confirmed in its slots.
+     */
+    @Override
+    public void start(StartOptions startOptions) {
+        if (startOptions.temporarySlot()) {
+            throw new IllegalArgumentException("Clustered change data capture can not stream through temporary replication slots, " +
+                    "since a temporary slot is dropped when its owner's session ends and can not be taken over by another node");
+        }
+        if (startOptions.lsn() != 0) {
+            throw new IllegalArgumentException("Clustered change data capture can not start from an LSN, " +
+                    "since an LSN is a position in the stream of a single slot, and the tables are spread across several slots");
+        }
+        if (startOptions.commitTimestamp() != null) {
+            throw new IllegalArgumentException("Clustered change data capture can not start from a commit timestamp, " +
+                    "since only the node that claims a slot first would skip the earlier changes, and the slots taken over later would not");
+        }
+        start();
+    }
+
+    @Override
+    public void stop() {
+        LOGGER.info("Stopping clustered replication stream listeners");
+        claimExecutor.shutdown();
+        try {
+            if (!claimExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                claimExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        stopListeners();
+        disownAll().forEach(SlotOwnership::stop);
+        // closing the session releases all the locks of this node
+        closeLockSession();
+        replicationStreamExecutor.shutdown();
+        try {
+            if (!replicationStreamExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                replicationStreamExecutor.shutdownNow();
+                LOGGER.warn("Clustered replication stream executor was shut down forcefully");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return names of the replication slots that are currently streamed by this node.
+     */
+    synchronized Set<String> ownedReplicationSlots() {
+        Set<String> owned = new HashSet<>();
+        for (SlotPartition partition : partitions) {
+            if (partition.isOwned()) {
+                owned.add(partition.replicationSlotName);
+            }
+        }
+        return owned;
+    }
+
+    private synchronized void stopListeners() {
+        for (SlotPartition partition : partitions) {
+            if (partition.isOwned()) {
+                partition.ownership.streamConsumer.stop();
+            }
+        }
+    }
+
+    private synchronized List<SlotOwnership> disownAll() {
+        List<SlotOwnership> released = new ArrayList<>();
+        for (SlotPartition partition : partitions) {
+            if (partition.isOwned()) {
+                released.add(partition.disown());
+            }
+        }
+        return released;
+    }
+
+    /**
+     * Claims the unowned slots up to the fair share of this node, and gives up the owned slots above it.
+     * The share is recalculated from the live members on every attempt.
+     */
+    private void claimSlots() {
+        List<SlotOwnership> released = new ArrayList<>();
+        boolean sessionLost = false;
+        try {
+            Connection session = lockSession();
+            int members = liveMembers(session);
+            int fairShare = (partitions.size() + members - 1) / members;
+            synchronized (this) {
+                int owned = 0;
+                for (SlotPartition partition : partitions) {
+                    if (partition.isOwned() && partition.ownership.streamFuture.isDone()) {
+                        LOGGER.warn("Replication slot {} listener has stopped, releasing the slot", partition.replicationSlotName);
+                        released.add(partition.disown());
+                    } else if (partition.isOwned()) {
+                        owned++;
+                    }
+                }
+                for (SlotPartition partition : partitions) {
+                    if (owned > fairShare && partition.isOwned()) {
+                        LOGGER.info("Releasing replication slot {} to rebalance the slots across {} nodes", partition.replicationSlotName, members);
+                        released.add(partition.disown());
+                        owned--;
+                    } else if (owned < fairShare && released.isEmpty() && !partition.isOwned() && tryClaim(session, partition)) {
+                        // nothing is claimed while released slots are still locked by this session
+                        owned++;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Could not claim replication slots", e);
+            sessionLost = true;
+        }
+        // waiting for the listeners to stop can take a while, so it is done without holding the lock
+        for (SlotOwnership ownership : released) {
+            ownership.stop();
+            if (!sessionLost) {
+                try {
+                    unlock(lockSession, ownership.replicationSlotName);
+                } catch (SQLException e) {
+                    LOGGER.warn("Could not unlock replication slot {}", ownership.replicationSlotName, e);
+                    sessionLost = true;
+                }
+            }
+        }
+        if (sessionLost) {
+            // the locks may be gone with the session, so all the slots are released and claimed again on a new session
+            disownAll().forEach(SlotOwnership::stop);
+            closeLockSession();
+        }
+    }
+
+    private Connection lockSession() throws SQLException {
+        if (lockSession == null) {
+            Connection session = connections.createConnection();
+            try (Statement statement = session.createStatement()) {
+                statement.execute("SET tcp_keepalives_idle = " + TCP_KEEPALIVES_IDLE_SECONDS);
+                statement.execute("SET tcp_keepalives_interval = " + TCP_KEEPALIVES_INTERVAL_SECONDS);
+                statement.execute("SET tcp_keepalives_count = " + TCP_KEEPALIVES_COUNT);
+                statement.execute("SELECT pg_advisory_lock_shared(" + MEMBERSHIP_LOCK_NAMESPACE + ", " + membershipKey + ")");
+            } catch (SQLException | RuntimeException e) {
+                session.close();
+                throw e;
+            }
+            lockSession = session;
+        }
+        return lockSession;
+    }
+
+    private void closeLockSession() {
+        if (lockSession == null) {
+            return;
+        }
+        try {
+            lockSession.close();
+        } catch (SQLException e) {
+            LOGGER.warn("Could not close the replication slot lock session", e);
+        }
+        lockSession = null;
+    }
+
+    private int liveMembers(Connection session) throws SQLException {
+        try (PreparedStatement statement = session.prepareStatement(
+                "SELECT count(*) FROM pg_locks WHERE locktype = 'advisory' AND granted " +
+                        "AND database = (SELECT oid FROM pg_database WHERE datname = current_database()) " +
+                        "AND classid = ?::oid AND objid = ?::oid AND objsubid = 2"
+        )) {
+            statement.setInt(1, MEMBERSHIP_LOCK_NAMESPACE);
+            statement.setInt(2, membershipKey);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                // this node is a member itself
+                return resultSet.next() ? Math.max(1, resultSet.getInt(1)) : 1;
+            }
+        }
+    }
+
+    private boolean tryClaim(Connection session, SlotPartition partition) throws SQLException {
+        try (PreparedStatement statement = session.prepareStatement("SELECT pg_try_advisory_lock(?, ?)")) {
+            statement.setInt(1, ADVISORY_LOCK_NAMESPACE);
+            statement.setInt(2, partition.replicationSlotName.hashCode());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next() || !resultSet.getBoolean(1)) {
+                    return false;
+                }
+            }
+        }
+        LOGGER.info("Claimed replication slot {} for tables {}", partition.replicationSlotName, partition.tables);
+        ReplicationStreamConsumer streamConsumer = new ReplicationStreamConsumer(
+                connections::createReplicationConnection,
+                partition.replicationSlotName,
+                partition.tables,
+                streamOptions,
+                consumerFactory.get()
+        );
+        streamConsumer.start();
+        partition.ownership = new SlotOwnership(
+                partition.replicationSlotName, streamConsumer, replicationStreamExecutor.submit(streamConsumer)
+        );
+        return true;
+    }
+
+    private static void unlock(Connection session, String replicationSlotName) throws SQLException {
+        try (PreparedStatement statement = session.prepareStatement("SELECT pg_advisory_unlock(?, ?)")) {
+            statement.setInt(1, ADVISORY_LOCK_NAMESPACE);
+            statement.setInt(2, replicationSlotName.hashCode());
+            statement.executeQuery().close();
+        }
+    }
+
+    private static class SlotPartition {
+        private final String replicationSlotName;
+        private final Set<String> tables;
+
+        // guarded by the listener lock
+        private SlotOwnership ownership;
+
+        SlotPartition(String replicationSlotName, Set<String> tables) {
+            this.replicationSlotName = replicationSlotName;
+            this.tables = tables;
+        }
+
+        private boolean isOwned() {
+            return ownership != null;
+        }
+
+        private SlotOwnership disown() {
+            SlotOwnership released = ownership;
+            ownership = null;
+            return released;
+        }
+    }
+
+    private static class SlotOwnership {
+        private final String replicationSlotName;
+        private final ReplicationStreamConsumer streamConsumer;
+        private final Future<?> streamFuture;
+
+        SlotOwnership(String replicationSlotName, ReplicationStreamConsumer streamConsumer, Future<?> streamFuture) {
+            this.replicationSlotName = replicationSlotName;
+            this.streamConsumer = streamConsumer;
+            this.streamFuture = streamFuture;
+        }
+
+        private void stop() {
+            streamConsumer.stop();
+            try {
+                streamFuture.get(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                LOGGER.warn("Replication slot {} listener did not stop cleanly", replicationSlotName, e);
+            }
+        }
+    }
+}
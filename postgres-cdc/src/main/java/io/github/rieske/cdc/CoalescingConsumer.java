@@ -0,0 +1,283 @@
+package io.github.rieske.cdc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Keeps only the latest change per row (table and primary key values) within a window and delivers the folded changes
+ * when the window closes. The messages in the window are reported as processed only once the window is delivered.
+ * Relies on the primary key column names that wal2json includes with the "include-pk" option.
+ */
+class CoalescingConsumer implements AcknowledgingConsumer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CoalescingConsumer.class);
+
+    private static final byte[] PK = Wal2JsonReader.ascii("pk");
+    private static final byte[] NAME = Wal2JsonReader.ascii("name");
+
+    private final DatabaseChangeDeserializer deserializer;
+    private final Consumer<DatabaseChange> delegate;
+    private final long windowNanos;
+    private final int maxChanges;
+
+    // the folded changes in the order of their last change, keyed by row
+    private final Map<Object, DatabaseChange> window = new LinkedHashMap<>();
+    private int windowChanges;
+    private long windowOpenedNanos;
+    private long lastReceivedSequence;
+    private long processedSequence;
+
+    CoalescingConsumer(Consumer<DatabaseChange> delegate, int largeValueThreshold, Duration window, int maxChanges) {
+        this.deserializer = new DatabaseChangeDeserializer(largeValueThreshold);
+        this.delegate = delegate;
+        this.windowNanos = window.toNanos();
+        this.maxChanges = maxChanges;
+    }
+
+    @Override
+    public void accept(Wal2JsonMessage message) {
+        try {
+            coalesce(message);
+        } catch (RuntimeException e) {
+            // the message that could not be coalesced is skipped, and acknowledged along with the window it arrived in
+            if (windowChanges == 0) {
+                processedSequence = message.sequence();
+            } else {
+                lastReceivedSequence = message.sequence();
+            }
+            throw e;
+        }
+    }
+
+    private void coalesce(Wal2JsonMessage message) {
+        if (message.action() == DatabaseChange.Action.TRUNCATE) {
+            passThrough(message, deserializer.deserialize(message));
+            return;
+        }
+        DatabaseChange change = deserializer.deserialize(message);
+        RowKey rowKey = rowKey(message, change);
+        if (rowKey.keyChanged) {
+            // the change moves the row to another key, so it can not be folded with the changes of either key
+            passThrough(message, change);
+            return;
+        }
+        if (windowChanges == 0) {
+            windowOpenedNanos = System.nanoTime();
+        }
+        windowChanges++;
+        lastReceivedSequence = message.sequence();
+        fold(rowKey.key, change);
+        if (windowChanges >= maxChanges || System.nanoTime() - windowOpenedNanos >= windowNanos) {
+            closeWindow();
+        }
+    }
+
+    @Override
+    public void onIdle() {
+        if (windowChanges > 0 && System.nanoTime() - windowOpenedNanos >= windowNanos) {
+            closeWindow();
+        }
+    }
+
+    @Override
+    public long processedSequence() {
+        return processedSequence;
+    }
+
+    private void fold(Object key, DatabaseChange change) {
+        // removed and put back, so that the window keeps the order of the last change of each row
+        DatabaseChange previous = window.remove(key);
+        DatabaseChange.Action action = previous == null ? change.action() : foldedAction(previous.action(), change.action());
+        if (action == null) {
+            return;
+        }
+        if (previous == null || previous.action() == DatabaseChange.Action.DELETE || change.action() == DatabaseChange.Action.DELETE) {
+            window.put(key, action == change.action() ? change : new CoalescedDatabaseChange(action, change, columnSources(change)));
+            return;
+        }
+        // an UPDATE leaves out the unchanged TOASTed values, so they are taken from the earlier changes of the row
+        Map<String, DatabaseChange> columnSources = new LinkedHashMap<>(columnSources(previous));
+        for (String column : change.columns().keySet()) {
+            columnSources.put(column, change);
+        }
+        window.put(key, new CoalescedDatabaseChange(action, change, columnSources));
+    }
+
+    private static Map<String, DatabaseChange> columnSources(DatabaseChange change) {
+        if (change instanceof CoalescedDatabaseChange) {
+            return ((CoalescedDatabaseChange) change).columnSources;
+        }
+        Map<String, DatabaseChange> columnSources = new LinkedHashMap<>();
+        for (String column : change.columns().keySet()) {
+            columnSources.put(column, change);
+        }
+        return columnSources;
+    }
+
+    /**
+     * @return the action that takes the row from its state before the previous change to its state after the next one,
+     * null if the row exists neither before nor after them.
+     */
+    static DatabaseChange.Action foldedAction(DatabaseChange.Action previous, DatabaseChange.Action next) {
+        switch (previous) {
+            case INSERT:
+                return next == DatabaseChange.Action.DELETE ? null : DatabaseChange.Action.INSERT;
+            case DELETE:
+                return next == DatabaseChange.Action.INSERT ? DatabaseChange.Action.UPDATE : next;
+            default:
+                return next;
+        }
+    }
+
+    private void passThrough(Wal2JsonMessage message, DatabaseChange change) {
+        closeWindow();
+        deliver(change);
+        processedSequence = message.sequence();
+    }
+
+    private void closeWindow() {
+        for (Iterator<DatabaseChange> changes = window.values().iterator(); changes.hasNext(); ) {
+            deliver(changes.next());
+            changes.remove();
+        }
+        windowChanges = 0;
+        processedSequence = Math.max(processedSequence, lastReceivedSequence);
+    }
+
+    private void deliver(DatabaseChange change) {
+        try {
+            delegate.accept(change);
+        } catch (Exception e) {
+            // same as for changes that are not coalesced - the failed change is logged and skipped
+            LOGGER.warn("Could not consume coalesced database change {}", change, e);
+        }
+    }
+
+    private static RowKey rowKey(Wal2JsonMessage message, DatabaseChange change) {
+        List<String> primaryKey = new ArrayList<>();
+        Map<String, String> identity = null;
+        Wal2JsonReader reader = message.reader();
+        reader.beginObject();
+        while (reader.nextField()) {
+            if (reader.fieldIs(PK)) {
+                reader.beginArray();
+                while (reader.nextElement()) {
+                    reader.beginObject();
+                    while (reader.nextField()) {
+                        if (reader.fieldIs(NAME)) {
+                            primaryKey.add(reader.readString());
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                }
+            } else if (reader.fieldIs(Wal2JsonReader.IDENTITY) && message.action() == DatabaseChange.Action.UPDATE) {
+                identity = readColumns(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        if (primaryKey.isEmpty()) {
+            // without a primary key every change is a row of its own
+            return new RowKey(new Object(), false);
+        }
+        Map<String, String> columns = change.columns();
+        String[] key = new String[primaryKey.size() + 2];
+        key[0] = message.schema();
+        key[1] = message.table();
+        boolean keyChanged = false;
+        for (int i = 0; i < primaryKey.size(); i++) {
+            String keyColumn = primaryKey.get(i);
+            key[i + 2] = columns.get(keyColumn);
+            if (identity != null && identity.containsKey(keyColumn) && !Objects.equals(identity.get(keyColumn), key[i + 2])) {
+                keyChanged = true;
+            }
+        }
+        return new RowKey(Arrays.asList(key), keyChanged);
+    }
+
+    private static Map<String, String> readColumns(Wal2JsonReader reader) {
+        Map<String, String> columns = new HashMap<>();
+        reader.beginColumns();
+        while (reader.nextColumn()) {
+            columns.put(reader.columnName(), reader.readString());
+        }
+        return columns;
+    }
+
+    private static class RowKey {
+        private final Object key;
+        private final boolean keyChanged;
+
+        RowKey(Object key, boolean keyChanged) {
+            this.key = key;
+            this.keyChanged = keyChanged;
+        }
+    }
+
+    /**
+     * The last change of a row in the window, with the action folded from all the changes of the row in the window,
+     * and each column value taken from the latest change that carries it.
+     */
+    private static class CoalescedDatabaseChange implements DatabaseChange {
+        private final Action action;
+        private final DatabaseChange lastChange;
+        private final Map<String, DatabaseChange> columnSources;
+
+        CoalescedDatabaseChange(Action action, DatabaseChange lastChange, Map<String, DatabaseChange> columnSources) {
+            this.action = action;
+            this.lastChange = lastChange;
+            this.columnSources = columnSources;
+        }
+
+        @Override
+        public Action action() {
+            return action;
+        }
+
+        @Override
+        public String schema() {
+            return lastChange.schema();
+        }
+
+        @Override
+        public String table() {
+            return lastChange.table();
+        }
+
+        @Override
+        public Map<String, String> columns() {
+            Map<String, String> columns = new LinkedHashMap<>();
+            columnSources.forEach((column, source) -> columns.put(column, source.columns().get(column)));
+            return Collections.unmodifiableMap(columns);
+        }
+
+        @Override
+        public InputStream columnValueStream(String column) {
+            DatabaseChange source = columnSources.get(column);
+            return source == null ? null : source.columnValueStream(column);
+        }
+
+        @Override
+        public String toString() {
+            return "DatabaseChange{" +
+                    "action='" + action + '\'' +
+                    ", schema='" + schema() + '\'' +
+                    ", table='" + table() + '\'' +
+                    ", columns=" + columns() +
+                    '}';
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package io.github.rieske.cdc;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 /**
@@ -37,6 +40,19 @@ public interface DatabaseChange {
      */
     Map<String, String> columns();
 
+    /**
+     * Streams the value of a column as UTF-8 bytes.
+     * Values larger than the configured large value threshold are streamed directly from the replication message bytes
+     * without ever being materialized as a String, so prefer this method over {@link #columns()} for large TEXT or JSON values.
+     *
+     * @param column the column name.
+     * @return the column value as a stream of UTF-8 bytes, or null if the column does not exist or its value is null.
+     */
+    default InputStream columnValueStream(String column) {
+        String value = columns().get(column);
+        return value == null ? null : new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8));
+    }
+
     /**
      * An action that was performed on the database to cause a change.
      */
@@ -0,0 +1,241 @@
+package io.github.rieske.cdc;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A compact binary encoding of {@link DatabaseChange}s, for forwarding decoded changes between services
+ * without the cost of re-encoding them as JSON.
+ * <p>
+ * Lengths and numbers are encoded as varints. Schema, table and column names that are present in the dictionary
+ * are encoded as their index in it, the rest as literals. Decoding returns a lazy view over the encoded bytes -
+ * names and values are only decoded when accessed, and {@link DatabaseChange#columnValueStream(String)} streams
+ * string values straight from the encoded bytes.
+ * <p>
+ * The encoding and decoding sides must use codecs with the same dictionary. Names may be appended to the end of the
+ * dictionary without breaking the decoding of changes encoded with the shorter one, but never removed or reordered.
+ * Instances are immutable and thread-safe - the {@code with*} methods return modified copies.
+ */
+public final class DatabaseChangeCodec {
+    static final byte FORMAT_VERSION = 1;
+
+    static final byte NULL_VALUE = 0;
+    static final byte STRING_VALUE = 1;
+    static final byte INTEGER_VALUE = 2;
+    static final byte TRUE_VALUE = 3;
+    static final byte FALSE_VALUE = 4;
+
+    private static final DatabaseChange.Action[] ACTIONS = DatabaseChange.Action.values();
+
+    private final String[] dictionary;
+    private final Map<String, Integer> dictionaryIndex;
+    private final boolean typedValues;
+
+    private DatabaseChangeCodec(String[] dictionary, boolean typedValues) {
+        this.dictionary = dictionary;
+        this.dictionaryIndex = new HashMap<>();
+        for (int i = 0; i < dictionary.length; i++) {
+            if (dictionaryIndex.put(Objects.requireNonNull(dictionary[i], "dictionary entry"), i) != null) {
+                throw new IllegalArgumentException("Duplicate dictionary entry " + dictionary[i]);
+            }
+        }
+        this.typedValues = typedValues;
+    }
+
+    /**
+     * Create a codec without a dictionary, that encodes all values as strings.
+     *
+     * @return a codec with the default settings.
+     */
+    public static DatabaseChangeCodec create() {
+        return new DatabaseChangeCodec(new String[0], false);
+    }
+
+    /**
+     * Schema, table and column names present in the dictionary are encoded as their index in it.
+     * Use the names of the captured schemas, tables and their columns, ordered by how often they occur.
+     *
+     * @param dictionary the names shared by the encoding and decoding sides.
+     *
+     * @return a copy of this codec with the given dictionary.
+     */
+    public DatabaseChangeCodec withDictionary(List<String> dictionary) {
+        return new DatabaseChangeCodec(dictionary.toArray(new String[0]), typedValues);
+    }
+
+    /**
+     * Values that are canonical integers (e.g. "42", "-7", but not "007" or "+1") are encoded as varints,
+     * and the values "true" and "false" as a single byte. The decoded values are always the exact original strings.
+     * This only affects the encoding - any codec with the same dictionary decodes typed values.
+     *
+     * @return a copy of this codec that encodes typed values.
+     */
+    public DatabaseChangeCodec withTypedValues() {
+        return new DatabaseChangeCodec(dictionary, true);
+    }
+
+    /**
+     * @param change the change to encode.
+     *
+     * @return the encoded change.
+     */
+    public byte[] encode(DatabaseChange change) {
+        Encoder encoder = new Encoder();
+        encoder.writeByte(FORMAT_VERSION);
+        encoder.writeByte((byte) change.action().ordinal());
+        writeName(encoder, change.schema());
+        writeName(encoder, change.table());
+        Map<String, String> columns = change.columns();
+        encoder.writeVarint(columns.size());
+        for (Map.Entry<String, String> column : columns.entrySet()) {
+            writeName(encoder, column.getKey());
+            writeValue(encoder, column.getValue());
+        }
+        return encoder.toByteArray();
+    }
+
+    /**
+     * @param encodedChange the bytes produced by {@link #encode(DatabaseChange)}. The bytes are not copied,
+     *                      and must not be modified while the decoded change is in use.
+     *
+     * @return a view of the encoded change.
+     * @throws IllegalArgumentException if the bytes are not an encoded change, or use names outside of the dictionary.
+     */
+    public DatabaseChange decode(byte[] encodedChange) {
+        return decode(encodedChange, 0, encodedChange.length);
+    }
+
+    /**
+     * @param bytes the array holding the bytes produced by {@link #encode(DatabaseChange)}. The bytes are not copied,
+     *              and must not be modified while the decoded change is in use.
+     * @param offset the offset of the encoded change in the array.
+     * @param length the length of the encoded change.
+     *
+     * @return a view of the encoded change.
+     * @throws IllegalArgumentException if the bytes are not an encoded change, or use names outside of the dictionary.
+     */
+    public DatabaseChange decode(byte[] bytes, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, bytes.length);
+        if (length < 2 || bytes[offset] != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Not an encoded database change");
+        }
+        int actionOrdinal = bytes[offset + 1];
+        if (actionOrdinal < 0 || actionOrdinal >= ACTIONS.length) {
+            throw new IllegalArgumentException("Unrecognized database change action: " + actionOrdinal);
+        }
+        return new EncodedDatabaseChange(dictionary, ACTIONS[actionOrdinal], bytes, offset + 2, offset + length);
+    }
+
+    /**
+     * Names are written as a varint holding either the dictionary index (even) or the literal length (odd).
+     */
+    private void writeName(Encoder encoder, String name) {
+        Integer index = dictionaryIndex.get(name);
+        if (index != null) {
+            encoder.writeVarint((long) index << 1);
+        } else {
+            byte[] literal = name.getBytes(StandardCharsets.UTF_8);
+            encoder.writeVarint(((long) literal.length << 1) | 1);
+            encoder.writeBytes(literal);
+        }
+    }
+
+    private void writeValue(Encoder encoder, String value) {
+        if (value == null) {
+            encoder.writeByte(NULL_VALUE);
+            return;
+        }
+        if (typedValues) {
+            if (value.equals("true")) {
+                encoder.writeByte(TRUE_VALUE);
+                return;
+            }
+            if (value.equals("false")) {
+                encoder.writeByte(FALSE_VALUE);
+                return;
+            }
+            if (isCanonicalInteger(value)) {
+                long integer = Long.parseLong(value);
+                encoder.writeByte(INTEGER_VALUE);
+                encoder.writeVarint((integer << 1) ^ (integer >> 63));
+                return;
+            }
+        }
+        byte[] string = value.getBytes(StandardCharsets.UTF_8);
+        encoder.writeByte(STRING_VALUE);
+        encoder.writeVarint(string.length);
+        encoder.writeBytes(string);
+    }
+
+    /**
+     * @return whether the value is an integer that {@link Long#toString(long)} renders exactly the same way.
+     */
+    private static boolean isCanonicalInteger(String value) {
+        int length = value.length();
+        if (length == 0) {
+            return false;
+        }
+        int start = value.charAt(0) == '-' ? 1 : 0;
+        if (length == start || length - start > 19) {
+            return false;
+        }
+        if (value.charAt(start) == '0') {
+            return length == 1;
+        }
+        for (int i = start; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        if (length - start < 19) {
+            return true;
+        }
+        // 19 digits may overflow a long
+        try {
+            Long.parseLong(value);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static class Encoder {
+        private byte[] buffer = new byte[256];
+        private int size;
+
+        void writeByte(byte b) {
+            ensureCapacity(1);
+            buffer[size++] = b;
+        }
+
+        void writeVarint(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        void writeBytes(byte[] bytes) {
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+
+        private void ensureCapacity(int additional) {
+            if (size + additional > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + additional));
+            }
+        }
+    }
+}
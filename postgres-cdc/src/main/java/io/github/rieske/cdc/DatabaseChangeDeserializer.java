@@ -0,0 +1,31 @@
+package io.github.rieske.cdc;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.io.IOException;
+
+class DatabaseChangeDeserializer {
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+                .registerModule(new JavaTimeModule());
+
+    private final int largeValueThreshold;
+
+    DatabaseChangeDeserializer(int largeValueThreshold) {
+        this.largeValueThreshold = largeValueThreshold;
+    }
+
+    DatabaseChange deserialize(Wal2JsonMessage message) {
+        // no column value can exceed the threshold in a message that itself does not
+        if (message.length() > largeValueThreshold) {
+            return new Wal2JsonDatabaseChange(message, largeValueThreshold);
+        }
+        try {
+            return MAPPER.readValue(message.bytes(), message.offset(), message.length(), JsonDeserializedDatabaseChange.class);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
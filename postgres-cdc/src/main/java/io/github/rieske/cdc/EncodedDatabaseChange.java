@@ -0,0 +1,268 @@
+package io.github.rieske.cdc;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A DatabaseChange view over the bytes produced by {@link DatabaseChangeCodec}.
+ * The schema and table are decoded on first access, the column names when the columns are first accessed,
+ * and the column values on every access.
+ */
+class EncodedDatabaseChange implements DatabaseChange {
+    private final String[] dictionary;
+    private final Action action;
+    private final byte[] bytes;
+    private final int start;
+    private final int end;
+
+    private String schema;
+    private String table;
+    private int columnsStart = -1;
+    private Columns columns;
+
+    EncodedDatabaseChange(String[] dictionary, Action action, byte[] bytes, int start, int end) {
+        this.dictionary = dictionary;
+        this.action = action;
+        this.bytes = bytes;
+        this.start = start;
+        this.end = end;
+    }
+
+    @Override
+    public Action action() {
+        return action;
+    }
+
+    @Override
+    public String schema() {
+        readHeader();
+        return schema;
+    }
+
+    @Override
+    public String table() {
+        readHeader();
+        return table;
+    }
+
+    @Override
+    public Map<String, String> columns() {
+        if (columns == null) {
+            readHeader();
+            columns = new Columns(new Cursor(columnsStart));
+        }
+        return columns;
+    }
+
+    @Override
+    public InputStream columnValueStream(String column) {
+        columns();
+        int position = columns.positionOf(column);
+        if (position < 0) {
+            return null;
+        }
+        Cursor cursor = new Cursor(position);
+        if (bytes[position] != DatabaseChangeCodec.STRING_VALUE) {
+            String value = cursor.readValue();
+            return value == null ? null : new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8));
+        }
+        cursor.position++;
+        int length = cursor.readLength();
+        return new ByteArrayInputStream(bytes, cursor.position, length);
+    }
+
+    private void readHeader() {
+        if (columnsStart >= 0) {
+            return;
+        }
+        Cursor cursor = new Cursor(start);
+        schema = cursor.readName();
+        table = cursor.readName();
+        columnsStart = cursor.position;
+    }
+
+    @Override
+    public String toString() {
+        return "DatabaseChange{" +
+                "action='" + action + '\'' +
+                ", schema='" + schema() + '\'' +
+                ", table='" + table() + '\'' +
+                ", columns=" + columns() +
+                '}';
+    }
+
+    private class Cursor {
+        private int position;
+
+        Cursor(int position) {
+            this.position = position;
+        }
+
+        long readVarint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint at " + position);
+        }
+
+        int readLength() {
+            long length = readVarint();
+            if (length < 0 || length > end - position) {
+                throw new IllegalArgumentException("Length " + length + " at " + position + " exceeds the encoded change");
+            }
+            return (int) length;
+        }
+
+        String readName() {
+            long reference = readVarint();
+            if ((reference & 1) == 0) {
+                long index = reference >>> 1;
+                if (index >= dictionary.length) {
+                    throw new IllegalArgumentException("Name index " + index + " is outside of the dictionary of " + dictionary.length);
+                }
+                return dictionary[(int) index];
+            }
+            long length = reference >>> 1;
+            if (length > end - position) {
+                throw new IllegalArgumentException("Length " + length + " at " + position + " exceeds the encoded change");
+            }
+            return readString((int) length);
+        }
+
+        String readValue() {
+            byte type = readByte();
+            switch (type) {
+                case DatabaseChangeCodec.NULL_VALUE:
+                    return null;
+                case DatabaseChangeCodec.STRING_VALUE:
+                    return readString(readLength());
+                case DatabaseChangeCodec.INTEGER_VALUE:
+                    long zigzag = readVarint();
+                    return Long.toString((zigzag >>> 1) ^ -(zigzag & 1));
+                case DatabaseChangeCodec.TRUE_VALUE:
+                    return "true";
+                case DatabaseChangeCodec.FALSE_VALUE:
+                    return "false";
+                default:
+                    throw new IllegalArgumentException("Unrecognized value type " + type + " at " + (position - 1));
+            }
+        }
+
+        void skipValue() {
+            byte type = readByte();
+            if (type == DatabaseChangeCodec.STRING_VALUE) {
+                int length = readLength();
+                position += length;
+            } else if (type == DatabaseChangeCodec.INTEGER_VALUE) {
+                readVarint();
+            } else if (type < DatabaseChangeCodec.NULL_VALUE || type > DatabaseChangeCodec.FALSE_VALUE) {
+                throw new IllegalArgumentException("Unrecognized value type " + type + " at " + (position - 1));
+            }
+        }
+
+        private String readString(int length) {
+            String string = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return string;
+        }
+
+        private byte readByte() {
+            if (position >= end) {
+                throw new IllegalArgumentException("Unexpected end of the encoded change");
+            }
+            return bytes[position++];
+        }
+    }
+
+    private class Columns extends AbstractMap<String, String> {
+        private final String[] names;
+        private final int[] positions;
+
+        Columns(Cursor cursor) {
+            long count = cursor.readVarint();
+            // every column takes at least two bytes
+            if (count < 0 || count > (end - cursor.position) / 2) {
+                throw new IllegalArgumentException("Column count " + count + " exceeds the encoded change");
+            }
+            this.names = new String[(int) count];
+            this.positions = new int[(int) count];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = cursor.readName();
+                positions[i] = cursor.position;
+                cursor.skipValue();
+            }
+        }
+
+        /**
+         * Tables have few enough columns that a scan is cheaper than building a hash index for every decoded change.
+         * Names from the dictionary are the same instances as the ones being looked up, so most comparisons are by identity.
+         */
+        int positionOf(Object name) {
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equals(name)) {
+                    return positions[i];
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public String get(Object key) {
+            int position = positionOf(key);
+            return position < 0 ? null : new Cursor(position).readValue();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return positionOf(key) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return names.length;
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, String>> iterator() {
+                    return new Iterator<>() {
+                        private int next;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < names.length;
+                        }
+
+                        @Override
+                        public Entry<String, String> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int i = next++;
+                            return new SimpleImmutableEntry<>(names[i], new Cursor(positions[i]).readValue());
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return names.length;
+                }
+            };
+        }
+    }
+}
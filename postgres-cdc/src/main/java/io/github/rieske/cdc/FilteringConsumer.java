@@ -0,0 +1,62 @@
+package io.github.rieske.cdc;
+
+import java.util.function.Predicate;
+
+/**
+ * Passes on only the messages matching the filter. The skipped messages are acknowledged
+ * as soon as the delegate has processed everything it was given before them.
+ */
+class FilteringConsumer implements AcknowledgingConsumer {
+    private final Predicate<Wal2JsonMessage> filter;
+    private final AcknowledgingConsumer delegate;
+
+    private long lastDelegatedSequence;
+    private long lastSkippedSequence;
+
+    FilteringConsumer(Predicate<Wal2JsonMessage> filter, AcknowledgingConsumer delegate) {
+        this.filter = filter;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void accept(Wal2JsonMessage message) {
+        boolean matches;
+        try {
+            matches = filter.test(message);
+        } catch (RuntimeException e) {
+            // a message that can not be filtered is skipped
+            lastSkippedSequence = message.sequence();
+            throw e;
+        }
+        if (matches) {
+            lastDelegatedSequence = message.sequence();
+            delegate.accept(message);
+        } else {
+            lastSkippedSequence = message.sequence();
+        }
+    }
+
+    @Override
+    public long processedSequence() {
+        long processedSequence = delegate.processedSequence();
+        if (processedSequence >= lastDelegatedSequence) {
+            return Math.max(processedSequence, lastSkippedSequence);
+        }
+        return processedSequence;
+    }
+
+    @Override
+    public void onIdle() {
+        delegate.onIdle();
+    }
+
+    @Override
+    public boolean hasDemand() {
+        return delegate.hasDemand();
+    }
+
+    @Override
+    public void onStreamFailure(Exception failure) {
+        delegate.onStreamFailure(failure);
+    }
+}
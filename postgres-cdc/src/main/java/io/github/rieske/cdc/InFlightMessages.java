@@ -0,0 +1,62 @@
+package io.github.rieske.cdc;
+
+/**
+ * Tracks the sizes of the messages that were handed to the consumer but not yet processed, in delivery order.
+ * Each message gets the next delivery sequence number - unlike the LSNs of the changes, which are not monotonic
+ * when transactions interleave, the sequence numbers grow in the order the consumer receives the messages.
+ */
+class InFlightMessages {
+    private long[] lsns = new long[64];
+    private int[] sizes = new int[64];
+    private int head;
+    private int count;
+    private long bytes;
+    private long nextSequence = 1;
+
+    /**
+     * @return the delivery sequence number of the added message.
+     */
+    long add(long lsn, int size) {
+        if (count == lsns.length) {
+            grow();
+        }
+        int tail = (head + count) % lsns.length;
+        lsns[tail] = lsn;
+        sizes[tail] = size;
+        count++;
+        bytes += size;
+        return nextSequence++;
+    }
+
+    /**
+     * Releases all the messages up to and including the one with the given delivery sequence number.
+     *
+     * @return the LSN of the last released message, 0 if no message was released.
+     */
+    long release(long processedSequence) {
+        long releasedLsn = 0;
+        while (count > 0 && nextSequence - count <= processedSequence) {
+            releasedLsn = lsns[head];
+            bytes -= sizes[head];
+            head = (head + 1) % lsns.length;
+            count--;
+        }
+        return releasedLsn;
+    }
+
+    long bytes() {
+        return bytes;
+    }
+
+    private void grow() {
+        long[] grownLsns = new long[lsns.length * 2];
+        int[] grownSizes = new int[sizes.length * 2];
+        for (int i = 0; i < count; i++) {
+            grownLsns[i] = lsns[(head + i) % lsns.length];
+            grownSizes[i] = sizes[(head + i) % sizes.length];
+        }
+        lsns = grownLsns;
+        sizes = grownSizes;
+        head = 0;
+    }
+}
@@ -19,28 +19,16 @@ class JsonDeserializedDatabaseChange implements DatabaseChange {
             @JsonProperty("action") String action,
             @JsonProperty("schema") String schema,
             @JsonProperty("table") String table,
-            @JsonProperty("columns") List<Column> columns
+            @JsonProperty("columns") List<Column> columns,
+            @JsonProperty("identity") List<Column> identity
     ) {
-        switch (action) {
-            case "I":
-                this.action = Action.INSERT;
-                break;
-            case "U":
-                this.action = Action.UPDATE;
-                break;
-            case "D":
-                this.action = Action.DELETE;
-                break;
-            case "T":
-                this.action = Action.TRUNCATE;
-                break;
-            default:
-                throw new IllegalArgumentException("Unrecognized database change action: " + action);
-        }
+        this.action = Wal2JsonMessage.action(action);
         this.schema = schema;
         this.table = table;
         Map<String, String> mutableColumns = new HashMap<>();
-        for (Column column : columns) {
+        // see Wal2JsonReader.IDENTITY - TRUNCATE changes carry neither
+        List<Column> changedColumns = columns != null ? columns : identity != null ? identity : List.of();
+        for (Column column : changedColumns) {
             mutableColumns.put(column.name, column.value);
         }
         this.columns = Collections.unmodifiableMap(mutableColumns);
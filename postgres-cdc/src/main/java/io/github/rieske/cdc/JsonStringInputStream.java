@@ -0,0 +1,132 @@
+package io.github.rieske.cdc;
+
+import java.io.InputStream;
+
+/**
+ * Streams the UTF-8 bytes of a JSON string value directly from the wal2json message bytes,
+ * resolving escape sequences on the fly instead of materializing the value.
+ */
+class JsonStringInputStream extends InputStream {
+    private final byte[] bytes;
+    private final int end;
+    private int position;
+
+    // UTF-8 bytes of an escaped character that were not read yet
+    private final byte[] pending = new byte[4];
+    private int pendingPosition;
+    private int pendingLength;
+
+    /**
+     * @param bytes the message bytes
+     * @param start offset of the first byte of the string content, after the opening quote
+     * @param end offset of the closing quote
+     */
+    JsonStringInputStream(byte[] bytes, int start, int end) {
+        this.bytes = bytes;
+        this.position = start;
+        this.end = end;
+    }
+
+    @Override
+    public int read() {
+        if (pendingPosition < pendingLength) {
+            return pending[pendingPosition++] & 0xFF;
+        }
+        if (position >= end) {
+            return -1;
+        }
+        byte current = bytes[position];
+        if (current != '\\') {
+            position++;
+            return current & 0xFF;
+        }
+        unescapeNext();
+        return pending[pendingPosition++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] target, int offset, int length) {
+        if (length == 0) {
+            return 0;
+        }
+        int read = 0;
+        while (read < length) {
+            if (pendingPosition == pendingLength) {
+                int plain = plainRunLength(length - read);
+                if (plain > 0) {
+                    System.arraycopy(bytes, position, target, offset + read, plain);
+                    position += plain;
+                    read += plain;
+                    continue;
+                }
+            }
+            int next = read();
+            if (next == -1) {
+                break;
+            }
+            target[offset + read++] = (byte) next;
+        }
+        return read == 0 ? -1 : read;
+    }
+
+    private int plainRunLength(int max) {
+        int limit = Math.min(end, position + max);
+        int i = position;
+        while (i < limit && bytes[i] != '\\') {
+            i++;
+        }
+        return i - position;
+    }
+
+    private void unescapeNext() {
+        byte escaped = bytes[position + 1];
+        if (escaped != 'u') {
+            position += 2;
+            pending[0] = (byte) Wal2JsonReader.unescapedChar(escaped);
+            pendingPosition = 0;
+            pendingLength = 1;
+            return;
+        }
+        int codePoint = hex(position + 2);
+        position += 6;
+        if (Character.isHighSurrogate((char) codePoint) && position + 6 <= end && bytes[position] == '\\' && bytes[position + 1] == 'u') {
+            int low = hex(position + 2);
+            if (Character.isLowSurrogate((char) low)) {
+                codePoint = Character.toCodePoint((char) codePoint, (char) low);
+                position += 6;
+            }
+        }
+        encodeUtf8(codePoint);
+    }
+
+    private int hex(int offset) {
+        int value = 0;
+        for (int i = offset; i < offset + 4; i++) {
+            value = (value << 4) | Character.digit(bytes[i], 16);
+        }
+        return value;
+    }
+
+    private void encodeUtf8(int codePoint) {
+        pendingPosition = 0;
+        if (codePoint < 0x80) {
+            pending[0] = (byte) codePoint;
+            pendingLength = 1;
+        } else if (codePoint < 0x800) {
+            pending[0] = (byte) (0xC0 | (codePoint >> 6));
+            pending[1] = (byte) (0x80 | (codePoint & 0x3F));
+            pendingLength = 2;
+        } else if (codePoint < 0x10000) {
+            pending[0] = (byte) (0xE0 | (codePoint >> 12));
+            pending[1] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            pending[2] = (byte) (0x80 | (codePoint & 0x3F));
+            pendingLength = 3;
+        } else {
+            pending[0] = (byte) (0xF0 | (codePoint >> 18));
+            pending[1] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            pending[2] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            pending[3] = (byte) (0x80 | (codePoint & 0x3F));
+            pendingLength = 4;
+        }
+    }
+}
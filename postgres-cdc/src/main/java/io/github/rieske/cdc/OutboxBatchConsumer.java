@@ -0,0 +1,20 @@
+package io.github.rieske.cdc;
+
+import java.util.List;
+
+/**
+ * Receives batches of outbox event payloads, grouped by destination.
+ */
+@FunctionalInterface
+public interface OutboxBatchConsumer {
+
+    /**
+     * Consume a batch of events for a single destination.
+     * The events are acknowledged in the replication stream only after this method returns.
+     * If it throws, the batch is retried after the configured linger time.
+     *
+     * @param destination the value of the routing column shared by all events in the batch. Null if the routing column was null.
+     * @param payloads the values of the payload column, in the order the events were committed.
+     */
+    void accept(String destination, List<String> payloads);
+}
@@ -0,0 +1,199 @@
+package io.github.rieske.cdc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+class OutboxBatchingConsumer implements AcknowledgingConsumer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(OutboxBatchingConsumer.class);
+
+    private static final byte[] ACTION = Wal2JsonReader.ascii("action");
+    private static final byte[] INSERT = Wal2JsonReader.ascii("I");
+
+    private final String table;
+    private final String payloadColumnName;
+    private final String routingColumnName;
+    private final byte[] payloadColumn;
+    private final byte[] routingColumn;
+    private final int maxBatchSize;
+    private final long maxLingerNanos;
+    private final OutboxBatchConsumer delegate;
+
+    // insertion order is the order in which the batches were (re)opened, so the head is always the first one due
+    private final Map<String, Batch> batches = new LinkedHashMap<>();
+    private long lastReceivedSequence;
+    // the first event that could not be extracted, 0 if none - nothing from it on is acknowledged
+    private long failedSequence;
+
+    OutboxBatchingConsumer(OutboxOptions options, OutboxBatchConsumer delegate) {
+        this.table = options.table();
+        this.payloadColumnName = options.payloadColumn();
+        this.routingColumnName = options.routingColumn();
+        this.payloadColumn = Wal2JsonReader.escaped(options.payloadColumn());
+        this.routingColumn = Wal2JsonReader.escaped(options.routingColumn());
+        this.maxBatchSize = options.maxBatchSize();
+        this.maxLingerNanos = options.maxLinger().toNanos();
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void accept(Wal2JsonMessage message) {
+        OutboxEvent event;
+        try {
+            event = extractEvent(message);
+        } catch (RuntimeException e) {
+            failedSequence = message.sequence();
+            throw e;
+        }
+        if (event != null) {
+            Batch batch = batches.get(event.destination);
+            if (batch == null) {
+                batch = new Batch(lastReceivedSequence, System.nanoTime());
+                batches.put(event.destination, batch);
+            }
+            batch.payloads.add(event.payload);
+            // a full batch that failed to be delivered keeps collecting events, and is retried with the next one
+            if (batch.payloads.size() >= maxBatchSize) {
+                deliver(event.destination, batch);
+            }
+        }
+        lastReceivedSequence = message.sequence();
+        deliverDueBatches();
+    }
+
+    @Override
+    public void onIdle() {
+        deliverDueBatches();
+    }
+
+    /**
+     * An event that can not be extracted (e.g. when the configured columns do not match the outbox table) stops
+     * the stream before it, so that neither it nor the events after it are acknowledged and lost.
+     */
+    @Override
+    public boolean hasDemand() {
+        return failedSequence == 0;
+    }
+
+    @Override
+    public long processedSequence() {
+        long processedSequence = lastReceivedSequence;
+        for (Batch batch : batches.values()) {
+            processedSequence = Math.min(processedSequence, batch.precedingSequence);
+        }
+        return processedSequence;
+    }
+
+    private void deliverDueBatches() {
+        long now = System.nanoTime();
+        Iterator<Map.Entry<String, Batch>> iterator = batches.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Batch> entry = iterator.next();
+            if (now - entry.getValue().openedAtNanos < maxLingerNanos) {
+                return;
+            }
+            if (tryDeliver(entry.getKey(), entry.getValue())) {
+                iterator.remove();
+            } else {
+                // retried after another linger period, once re-queued at the tail
+                iterator.remove();
+                batches.put(entry.getKey(), entry.getValue().reopened(now));
+                return;
+            }
+        }
+    }
+
+    private void deliver(String destination, Batch batch) {
+        batches.remove(destination);
+        if (!tryDeliver(destination, batch)) {
+            batches.put(destination, batch.reopened(System.nanoTime()));
+        }
+    }
+
+    private boolean tryDeliver(String destination, Batch batch) {
+        try {
+            delegate.accept(destination, Collections.unmodifiableList(batch.payloads));
+            return true;
+        } catch (Exception e) {
+            LOGGER.warn("Could not deliver a batch of {} outbox events to destination {}", batch.payloads.size(), destination, e);
+            return false;
+        }
+    }
+
+    private OutboxEvent extractEvent(Wal2JsonMessage message) {
+        Wal2JsonReader reader = message.reader();
+        reader.beginObject();
+        while (reader.nextField()) {
+            if (reader.fieldIs(ACTION)) {
+                if (!reader.valueIsString(INSERT)) {
+                    return null;
+                }
+                reader.skipValue();
+            } else if (reader.fieldIs(Wal2JsonReader.COLUMNS)) {
+                return extractEvent(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        return null;
+    }
+
+    private OutboxEvent extractEvent(Wal2JsonReader reader) {
+        String payload = null;
+        String destination = null;
+        boolean payloadFound = false;
+        boolean destinationFound = false;
+        reader.beginColumns();
+        while ((!payloadFound || !destinationFound) && reader.nextColumn()) {
+            if (reader.columnNameIs(payloadColumn)) {
+                payload = reader.readString();
+                payloadFound = true;
+            } else if (reader.columnNameIs(routingColumn)) {
+                destination = reader.readString();
+                destinationFound = true;
+            }
+        }
+        if (!payloadFound || !destinationFound) {
+            throw new IllegalStateException("Insert into outbox table " + table + " has no column " +
+                    (payloadFound ? routingColumnName : payloadColumnName) +
+                    " - the stream is not read further until the outbox options are fixed and the service is restarted");
+        }
+        return new OutboxEvent(destination, payload);
+    }
+
+    private static class OutboxEvent {
+        private final String destination;
+        private final String payload;
+
+        OutboxEvent(String destination, String payload) {
+            this.destination = destination;
+            this.payload = payload;
+        }
+    }
+
+    private static class Batch {
+        private final long precedingSequence;
+        private final long openedAtNanos;
+        private final List<String> payloads;
+
+        Batch(long precedingSequence, long openedAtNanos) {
+            this(precedingSequence, openedAtNanos, new ArrayList<>());
+        }
+
+        private Batch(long precedingSequence, long openedAtNanos, List<String> payloads) {
+            this.precedingSequence = precedingSequence;
+            this.openedAtNanos = openedAtNanos;
+            this.payloads = payloads;
+        }
+
+        Batch reopened(long now) {
+            return new Batch(precedingSequence, now, payloads);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package io.github.rieske.cdc;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Describes the outbox table to stream events from and how the events should be batched.
+ * Instances are immutable - the {@code with*} methods return modified copies.
+ */
+public final class OutboxOptions {
+    private static final int DEFAULT_MAX_BATCH_SIZE = 100;
+    private static final Duration DEFAULT_MAX_LINGER = Duration.ofMillis(100);
+
+    private final String table;
+    private final String payloadColumn;
+    private final String routingColumn;
+    private final int maxBatchSize;
+    private final Duration maxLinger;
+
+    private OutboxOptions(String table, String payloadColumn, String routingColumn, int maxBatchSize, Duration maxLinger) {
+        this.table = Objects.requireNonNull(table, "table");
+        this.payloadColumn = Objects.requireNonNull(payloadColumn, "payloadColumn");
+        this.routingColumn = Objects.requireNonNull(routingColumn, "routingColumn");
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Max batch size must be positive, got " + maxBatchSize);
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.maxLinger = Objects.requireNonNull(maxLinger, "maxLinger");
+    }
+
+    /**
+     * Create outbox options with the default batching limits: up to 100 events per batch, lingering for up to 100 milliseconds.
+     *
+     * @param table the outbox table to stream events from. Format: "schema.table"
+     * @param payloadColumn the column that holds the event payload
+     * @param routingColumn the column that holds the destination of the event
+     *
+     * @return outbox options for the given table.
+     */
+    public static OutboxOptions of(String table, String payloadColumn, String routingColumn) {
+        return new OutboxOptions(table, payloadColumn, routingColumn, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_LINGER);
+    }
+
+    /**
+     * A batch whose delivery failed keeps collecting events, and is retried as soon as the next event for its destination arrives,
+     * so a retried batch can hold more events than this.
+     *
+     * @param maxBatchSize the number of events after which a destination's batch is delivered.
+     *
+     * @return a copy of these options with the given max batch size.
+     */
+    public OutboxOptions withMaxBatchSize(int maxBatchSize) {
+        return new OutboxOptions(table, payloadColumn, routingColumn, maxBatchSize, maxLinger);
+    }
+
+    /**
+     * @param maxLinger how long a batch may wait for more events before it is delivered.
+     *
+     * @return a copy of these options with the given max linger time.
+     */
+    public OutboxOptions withMaxLinger(Duration maxLinger) {
+        return new OutboxOptions(table, payloadColumn, routingColumn, maxBatchSize, maxLinger);
+    }
+
+    String table() {
+        return table;
+    }
+
+    String payloadColumn() {
+        return payloadColumn;
+    }
+
+    String routingColumn() {
+        return routingColumn;
+    }
+
+    int maxBatchSize() {
+        return maxBatchSize;
+    }
+
+    Duration maxLinger() {
+        return maxLinger;
+    }
+}
@@ -0,0 +1,94 @@
+package io.github.rieske.cdc;
+
+import org.postgresql.PGProperty;
+import org.postgresql.jdbc.PgConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Properties;
+
+class PostgresConnections {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PostgresConnections.class);
+
+    // https://github.com/eulerto/wal2json
+    private static final String WAL_OUTPUT_PLUGIN = "wal2json";
+
+    private static final String SQLSTATE_DUPLICATE_OBJECT = "42710";
+
+    private final String jdbcUrl;
+    private final Properties databaseConnectionProperties;
+    private final Properties replicationConnectionProperties;
+
+    PostgresConnections(String jdbcUrl, String databaseUser, String databasePassword) {
+        this.jdbcUrl = jdbcUrl;
+
+        this.databaseConnectionProperties = new Properties();
+        PGProperty.USER.set(databaseConnectionProperties, databaseUser);
+        PGProperty.PASSWORD.set(databaseConnectionProperties, databasePassword);
+
+        this.replicationConnectionProperties = new Properties();
+        replicationConnectionProperties.putAll(databaseConnectionProperties);
+        PGProperty.ASSUME_MIN_SERVER_VERSION.set(replicationConnectionProperties, "9.4");
+        PGProperty.REPLICATION.set(replicationConnectionProperties, "database");
+        PGProperty.PREFER_QUERY_MODE.set(replicationConnectionProperties, "simple");
+    }
+
+    void createReplicationSlot(String replicationSlotName) {
+        try (PgConnection connection = createReplicationConnection()) {
+            LOGGER.info("Creating replications slot {}", replicationSlotName);
+            connection.getReplicationAPI()
+                    .createReplicationSlot()
+                    .logical()
+                    .withSlotName(replicationSlotName)
+                    .withOutputPlugin(WAL_OUTPUT_PLUGIN)
+                    .make();
+            LOGGER.info("Created replications slot {}", replicationSlotName);
+        } catch (SQLException e) {
+            if (SQLSTATE_DUPLICATE_OBJECT.equals(e.getSQLState())) {
+                LOGGER.info("Replication slot {} already exists", replicationSlotName);
+            } else {
+                throw new RuntimeException("Could not create replication slot " + replicationSlotName, e);
+            }
+        }
+    }
+
+    void dropReplicationSlot(String replicationSlotName) {
+        try (PgConnection connection = createReplicationConnection()) {
+            LOGGER.info("Dropping replications slot {}", replicationSlotName);
+            connection.getReplicationAPI().dropReplicationSlot(replicationSlotName);
+            LOGGER.info("Dropped replications slot {}", replicationSlotName);
+        } catch (SQLException e) {
+            throw new RuntimeException("Could not drop replication slot " + replicationSlotName, e);
+        }
+    }
+
+    static void createTemporaryReplicationSlot(PgConnection connection, String replicationSlotName) throws SQLException {
+        LOGGER.info("Creating temporary replications slot {}", replicationSlotName);
+        connection.getReplicationAPI()
+                .createReplicationSlot()
+                .logical()
+                .withSlotName(replicationSlotName)
+                .withOutputPlugin(WAL_OUTPUT_PLUGIN)
+                .withTemporaryOption()
+                .make();
+    }
+
+    PgConnection createReplicationConnection() {
+        try {
+            return DriverManager.getConnection(jdbcUrl, replicationConnectionProperties).unwrap(PgConnection.class);
+        } catch (SQLException e) {
+            throw new RuntimeException("Could not create database connection", e);
+        }
+    }
+
+    Connection createConnection() {
+        try {
+            return DriverManager.getConnection(jdbcUrl, databaseConnectionProperties);
+        } catch (SQLException e) {
+            throw new RuntimeException("Could not create database connection", e);
+        }
+    }
+}
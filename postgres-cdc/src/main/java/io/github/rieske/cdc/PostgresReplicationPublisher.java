@@ -0,0 +1,49 @@
+package io.github.rieske.cdc;
+
+import java.util.concurrent.Flow;
+
+class PostgresReplicationPublisher implements ChangeDataCapturePublisher {
+    private final ChangeDataCapture listener;
+    private final PublishingConsumer publishingConsumer;
+
+    PostgresReplicationPublisher(ChangeDataCapture listener, PublishingConsumer publishingConsumer) {
+        this.listener = listener;
+        this.publishingConsumer = publishingConsumer;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super DatabaseChange> subscriber) {
+        publishingConsumer.subscribe(subscriber);
+    }
+
+    @Override
+    public void confirm(DatabaseChange change) {
+        publishingConsumer.confirm(change);
+    }
+
+    @Override
+    public void createReplicationSlot() {
+        listener.createReplicationSlot();
+    }
+
+    @Override
+    public void dropReplicationSlot() {
+        listener.dropReplicationSlot();
+    }
+
+    @Override
+    public void start() {
+        listener.start();
+    }
+
+    @Override
+    public void start(StartOptions startOptions) {
+        listener.start(startOptions);
+    }
+
+    @Override
+    public void stop() {
+        listener.stop();
+        publishingConsumer.complete();
+    }
+}
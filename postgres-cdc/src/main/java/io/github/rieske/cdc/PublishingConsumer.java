@@ -0,0 +1,198 @@
+package io.github.rieske.cdc;
+
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Publishes the changes to a single subscriber. A published change is considered processed once the subscriber
+ * confirms it, and the stream is acknowledged up to the first change that is not confirmed yet.
+ */
+class PublishingConsumer implements AcknowledgingConsumer, Flow.Subscription {
+    // bounds the changes awaiting confirmation, unless the stream options set a limit of their own
+    static final long DEFAULT_MAX_IN_FLIGHT_BYTES = 16 * 1024 * 1024;
+
+    private final DatabaseChangeDeserializer deserializer;
+
+    private final AtomicReference<Flow.Subscriber<? super DatabaseChange>> subscriber = new AtomicReference<>();
+    private final AtomicLong demand = new AtomicLong();
+    private volatile IllegalArgumentException invalidRequest;
+    private volatile boolean terminated;
+
+    // accessed only by the listener thread
+    private final Queue<PublishedDatabaseChange> unconfirmedChanges = new ArrayDeque<>();
+    private long processedSequence;
+
+    PublishingConsumer(int largeValueThreshold) {
+        this.deserializer = new DatabaseChangeDeserializer(largeValueThreshold);
+    }
+
+    void subscribe(Flow.Subscriber<? super DatabaseChange> subscriber) {
+        if (!this.subscriber.compareAndSet(null, subscriber)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("The replication stream supports only a single subscriber"));
+            return;
+        }
+        subscriber.onSubscribe(this);
+    }
+
+    /**
+     * Completes the subscription. Must only be called once the listener thread has stopped.
+     */
+    void complete() {
+        Flow.Subscriber<? super DatabaseChange> current = subscriber.get();
+        if (current != null && !terminated) {
+            terminated = true;
+            current.onComplete();
+        }
+    }
+
+    @Override
+    public void request(long n) {
+        if (n <= 0) {
+            // signalled from the listener thread, so that it does not race with onNext
+            invalidRequest = new IllegalArgumentException("Requested " + n + " elements, but the request must be positive");
+            return;
+        }
+        demand.accumulateAndGet(n, (current, requested) -> {
+            long total = current + requested;
+            return total < 0 ? Long.MAX_VALUE : total;
+        });
+    }
+
+    @Override
+    public void cancel() {
+        terminated = true;
+    }
+
+    @Override
+    public boolean hasDemand() {
+        return !terminated && invalidRequest == null && demand.get() > 0;
+    }
+
+    @Override
+    public void onIdle() {
+        if (invalidRequest != null) {
+            fail(invalidRequest);
+        }
+    }
+
+    @Override
+    public void accept(Wal2JsonMessage message) {
+        DatabaseChange change;
+        try {
+            change = deserializer.deserialize(message);
+        } catch (RuntimeException e) {
+            // a change that fails to decode is never published, so it is confirmed in place of the subscriber
+            unconfirmedChanges.add(new PublishedDatabaseChange(this, message.sequence(), null, true));
+            throw e;
+        }
+        PublishedDatabaseChange publishedChange = new PublishedDatabaseChange(this, message.sequence(), change, false);
+        unconfirmedChanges.add(publishedChange);
+        publish(publishedChange);
+    }
+
+    void confirm(DatabaseChange change) {
+        if (!(change instanceof PublishedDatabaseChange) || ((PublishedDatabaseChange) change).publisher != this) {
+            throw new IllegalArgumentException("Only the changes published by this publisher can be confirmed");
+        }
+        PublishedDatabaseChange publishedChange = (PublishedDatabaseChange) change;
+        if (!publishedChange.rejected) {
+            publishedChange.confirmed = true;
+        }
+    }
+
+    @Override
+    public long processedSequence() {
+        while (!unconfirmedChanges.isEmpty() && unconfirmedChanges.peek().isConfirmed()) {
+            processedSequence = unconfirmedChanges.remove().sequence;
+        }
+        return processedSequence;
+    }
+
+    @Override
+    public void onStreamFailure(Exception failure) {
+        fail(failure);
+    }
+
+    private void fail(Exception failure) {
+        Flow.Subscriber<? super DatabaseChange> current = subscriber.get();
+        if (current != null && !terminated) {
+            terminated = true;
+            current.onError(failure);
+        }
+    }
+
+    private void publish(PublishedDatabaseChange change) {
+        demand.decrementAndGet();
+        try {
+            subscriber.get().onNext(change);
+        } catch (RuntimeException e) {
+            // onNext must not throw (Reactive Streams rule 2.13) - the subscription is considered cancelled,
+            // and neither this change nor the ones after it are acknowledged, even if the subscriber confirmed it
+            change.rejected = true;
+            fail(e);
+        }
+    }
+
+    private static class PublishedDatabaseChange implements DatabaseChange {
+        private final PublishingConsumer publisher;
+        private final long sequence;
+        private final DatabaseChange change;
+        private volatile boolean confirmed;
+        private volatile boolean rejected;
+
+        PublishedDatabaseChange(PublishingConsumer publisher, long sequence, DatabaseChange change, boolean confirmed) {
+            this.publisher = publisher;
+            this.sequence = sequence;
+            this.change = change;
+            this.confirmed = confirmed;
+        }
+
+        private boolean isConfirmed() {
+            return confirmed && !rejected;
+        }
+
+        @Override
+        public Action action() {
+            return change.action();
+        }
+
+        @Override
+        public String schema() {
+            return change.schema();
+        }
+
+        @Override
+        public String table() {
+            return change.table();
+        }
+
+        @Override
+        public Map<String, String> columns() {
+            return change.columns();
+        }
+
+        @Override
+        public InputStream columnValueStream(String column) {
+            return change.columnValueStream(column);
+        }
+
+        @Override
+        public String toString() {
+            return change.toString();
+        }
+    }
+}
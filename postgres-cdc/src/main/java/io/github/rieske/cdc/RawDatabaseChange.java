@@ -0,0 +1,49 @@
+package io.github.rieske.cdc;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A change in the database as received from the replication stream, before any deserialization.
+ * Exposes the wal2json message bytes and the log sequence number of the change.
+ * The action, schema and table are peeked from the message header without parsing the columns,
+ * so that messages can be routed cheaply.
+ */
+public interface RawDatabaseChange {
+
+    /**
+     * The log sequence number (LSN) of this change in the write-ahead log.
+     *
+     * @return the LSN as a 64-bit number, the same value that PostgreSQL renders as "XXX/XXX" in pg_lsn.
+     */
+    long lsn();
+
+    /**
+     * The wal2json (format-version 2) JSON message of this change, encoded in UTF-8.
+     * The bytes are not copied - each call returns a new read-only view positioned at the start of the message
+     * and limited to its end. The view stays valid after the consumer returns.
+     *
+     * @return a read-only buffer over the message bytes.
+     */
+    ByteBuffer payload();
+
+    /**
+     * The INSERT/UPDATE/DELETE/TRUNCATE action that yielded this change.
+     *
+     * @return the action, peeked from the message header.
+     */
+    DatabaseChange.Action action();
+
+    /**
+     * The schema where this change originated.
+     *
+     * @return the schema name, peeked from the message header.
+     */
+    String schema();
+
+    /**
+     * The table where this change originated.
+     *
+     * @return the table name, peeked from the message header.
+     */
+    String table();
+}
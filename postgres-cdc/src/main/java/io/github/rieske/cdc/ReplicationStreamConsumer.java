@@ -0,0 +1,201 @@
+package io.github.rieske.cdc;
+
+import org.postgresql.PGConnection;
+import org.postgresql.jdbc.PgConnection;
+import org.postgresql.replication.LogSequenceNumber;
+import org.postgresql.replication.PGReplicationStream;
+import org.postgresql.replication.fluent.logical.ChainedLogicalStreamBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+class ReplicationStreamConsumer implements Runnable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicationStreamConsumer.class);
+
+    private static final Duration STATUS_INTERVAL = Duration.ofSeconds(10);
+
+    private final Supplier<PgConnection> connectionSupplier;
+    private final String replicationSlotName;
+    private final Set<String> tablesToListenTo;
+    private final long maxInFlightBytes;
+    private final boolean includePrimaryKeys;
+    private final AcknowledgingConsumer configuredConsumer;
+
+    private volatile StartOptions startOptions = StartOptions.fromConfirmedPosition();
+
+    // accessed only by the listener thread
+    private AcknowledgingConsumer consumer;
+    private final InFlightMessages inFlightMessages = new InFlightMessages();
+    private long acknowledgedLsn;
+    private long lastStatusUpdateNanos;
+
+    private volatile boolean running = false;
+
+    ReplicationStreamConsumer(
+            Supplier<PgConnection> connectionSupplier,
+            String replicationSlotName,
+            Set<String> tablesToListenTo,
+            StreamOptions streamOptions,
+            AcknowledgingConsumer consumer
+    ) {
+        this.connectionSupplier = connectionSupplier;
+        this.replicationSlotName = replicationSlotName;
+        this.tablesToListenTo = tablesToListenTo;
+        this.maxInFlightBytes = streamOptions.maxInFlightBytes();
+        // coalescing identifies the rows by their primary key
+        this.includePrimaryKeys = streamOptions.coalescingWindow() != null;
+        ChangePredicate filter = streamOptions.filter();
+        // evaluated on the message bytes, so that skipped changes are never decoded
+        this.configuredConsumer = filter == null ? consumer : new FilteringConsumer(filter.matcher(), consumer);
+    }
+
+    void start() {
+        start(StartOptions.fromConfirmedPosition());
+    }
+
+    void start(StartOptions startOptions) {
+        this.startOptions = startOptions;
+        this.running = true;
+        synchronized (this) {
+            notify();
+        }
+    }
+
+    void stop() {
+        this.running = false;
+    }
+
+    @Override
+    public void run() {
+        synchronized (this) {
+            if (!running) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    LOGGER.info("Replication slot {} consumer was interrupted while not yet started", replicationSlotName);
+                    return;
+                }
+            }
+        }
+        StartOptions startOptions = this.startOptions;
+        consumer = consumerFor(startOptions);
+        try (PgConnection connection = connectionSupplier.get()) {
+            if (startOptions.temporarySlot()) {
+                PostgresConnections.createTemporaryReplicationSlot(connection, replicationSlotName);
+            }
+            try (PGReplicationStream stream = getStream(connection, startOptions)) {
+                LOGGER.info("Connected to replication slot {}", replicationSlotName);
+                consumeStream(stream);
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Exception thrown in replication slot {} listener loop", replicationSlotName, e);
+            consumer.onStreamFailure(e);
+        }
+        LOGGER.info("Replication slot {} consumer was stopped", replicationSlotName);
+    }
+
+    private void consumeStream(PGReplicationStream stream) throws SQLException {
+        lastStatusUpdateNanos = System.nanoTime();
+        while (running) {
+            if (inFlightMessages.bytes() >= maxInFlightBytes || !consumer.hasDemand()) {
+                // stop reading until the consumer is ready for more, but let the server know we are still alive
+                if (System.nanoTime() - lastStatusUpdateNanos >= STATUS_INTERVAL.toNanos()) {
+                    stream.forceUpdateStatus();
+                    lastStatusUpdateNanos = System.nanoTime();
+                }
+                idle(stream);
+                continue;
+            }
+
+            ByteBuffer msg = stream.readPending();
+
+            if (msg == null) {
+                idle(stream);
+                continue;
+            }
+
+            try {
+                long lsn = stream.getLastReceiveLSN().asLong();
+                Wal2JsonMessage message = new Wal2JsonMessage(inFlightMessages.add(lsn, msg.remaining()), lsn, msg);
+                consumer.accept(message);
+                acknowledge(stream);
+            } catch (Exception e) {
+                LOGGER.warn("Could not consume database change event from replication slot {}", replicationSlotName, e);
+            }
+        }
+        LOGGER.info("Replication slot {} consumer was stopped", replicationSlotName);
+    }
+
+    private void idle(PGReplicationStream stream) throws SQLException {
+        consumer.onIdle();
+        acknowledge(stream);
+        try {
+            TimeUnit.MILLISECONDS.sleep(10L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Replication slot " + replicationSlotName + " consumer thread was interrupted", e);
+        }
+    }
+
+    private void acknowledge(PGReplicationStream stream) throws SQLException {
+        // the LSNs of the changes are not monotonic when transactions interleave, so the messages are released by
+        // the order of delivery, and only the LSN of the last released one decides whether to acknowledge
+        long processedLsn = inFlightMessages.release(consumer.processedSequence());
+        if (processedLsn <= acknowledgedLsn) {
+            return;
+        }
+        LogSequenceNumber lsn = LogSequenceNumber.valueOf(processedLsn);
+        stream.setAppliedLSN(lsn);
+        stream.setFlushedLSN(lsn);
+        stream.forceUpdateStatus();
+        acknowledgedLsn = processedLsn;
+        lastStatusUpdateNanos = System.nanoTime();
+    }
+
+    private AcknowledgingConsumer consumerFor(StartOptions startOptions) {
+        Instant commitTimestamp = startOptions.commitTimestamp();
+        if (commitTimestamp == null) {
+            return configuredConsumer;
+        }
+        LOGGER.info("Skipping changes committed before {} in replication slot {}", commitTimestamp, replicationSlotName);
+        // changes arrive in commit order, so once the first one at or after the timestamp arrives, the rest follow
+        Predicate<Wal2JsonMessage> committedSinceTimestamp = new Predicate<>() {
+            private boolean reached;
+
+            @Override
+            public boolean test(Wal2JsonMessage message) {
+                if (!reached) {
+                    reached = !message.commitTimestamp().isBefore(commitTimestamp);
+                }
+                return reached;
+            }
+        };
+        return new FilteringConsumer(committedSinceTimestamp, configuredConsumer);
+    }
+
+    private PGReplicationStream getStream(PGConnection connection, StartOptions startOptions) throws SQLException {
+        ChainedLogicalStreamBuilder streamBuilder = connection.getReplicationAPI().replicationStream().logical().withSlotName(replicationSlotName)
+                .withSlotOption("format-version", 2)
+                .withSlotOption("include-transaction", false)
+                .withSlotOption("include-timestamp", true)
+                .withSlotOption("add-tables", String.join(",", tablesToListenTo))
+                .withStatusInterval((int) STATUS_INTERVAL.toSeconds(), TimeUnit.SECONDS);
+        if (includePrimaryKeys) {
+            streamBuilder.withSlotOption("include-pk", true);
+        }
+        if (startOptions.lsn() != 0) {
+            LOGGER.info("Starting replication slot {} at {}", replicationSlotName, LogSequenceNumber.valueOf(startOptions.lsn()).asString());
+            streamBuilder.withStartPosition(LogSequenceNumber.valueOf(startOptions.lsn()));
+        }
+        return streamBuilder.start();
+    }
+}
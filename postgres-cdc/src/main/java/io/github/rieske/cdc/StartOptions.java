@@ -0,0 +1,108 @@
+package io.github.rieske.cdc;
+
+import org.postgresql.replication.LogSequenceNumber;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Where to start streaming the changes from and whether to stream them through a temporary replication slot.
+ * Instances are immutable - the {@code in*} methods return modified copies.
+ * <p>
+ * Note that a logical replication slot can not be rewound: the server never streams changes that were already
+ * acknowledged in the slot, so a start position before the slot's confirmed position has no effect.
+ * Starting ahead of the confirmed position skips the changes in between, and they are acknowledged once streaming resumes.
+ */
+public final class StartOptions {
+    private final long lsn;
+    private final Instant commitTimestamp;
+    private final boolean temporarySlot;
+
+    private StartOptions(long lsn, Instant commitTimestamp, boolean temporarySlot) {
+        this.lsn = lsn;
+        this.commitTimestamp = commitTimestamp;
+        this.temporarySlot = temporarySlot;
+    }
+
+    /**
+     * Resume streaming from the position confirmed in the replication slot. This is what {@link ChangeDataCapture#start()} does.
+     *
+     * @return start options for resuming from the confirmed position.
+     */
+    public static StartOptions fromConfirmedPosition() {
+        return new StartOptions(0, null, false);
+    }
+
+    /**
+     * Start streaming from the given log sequence number, skipping the transactions that committed before it.
+     *
+     * @param lsn the log sequence number as a 64-bit number, e.g. as returned by {@link RawDatabaseChange#lsn()}.
+     *
+     * @return start options for starting from the given LSN.
+     *
+     * @throws IllegalArgumentException if the LSN is zero (the invalid LSN) or negative.
+     */
+    public static StartOptions fromLsn(long lsn) {
+        // 0 is the invalid LSN, and a negative one is beyond any position the server can reach
+        if (lsn <= 0) {
+            throw new IllegalArgumentException("Invalid log sequence number " + lsn);
+        }
+        return new StartOptions(lsn, null, false);
+    }
+
+    /**
+     * Start streaming from the given log sequence number, skipping the transactions that committed before it.
+     *
+     * @param lsn the log sequence number in the PostgreSQL textual format, e.g. "16/B374D848".
+     *
+     * @return start options for starting from the given LSN.
+     */
+    public static StartOptions fromLsn(String lsn) {
+        LogSequenceNumber logSequenceNumber = LogSequenceNumber.valueOf(Objects.requireNonNull(lsn, "lsn"));
+        if (logSequenceNumber.equals(LogSequenceNumber.INVALID_LSN)) {
+            throw new IllegalArgumentException("Invalid log sequence number " + lsn);
+        }
+        return fromLsn(logSequenceNumber.asLong());
+    }
+
+    /**
+     * Start streaming from the first change that was committed at or after the given time.
+     * The earlier changes are still read from the confirmed position of the slot, but they are skipped before being decoded
+     * and are acknowledged.
+     *
+     * @param commitTimestamp the commit time of the first change to stream.
+     *
+     * @return start options for starting from the given commit time.
+     */
+    public static StartOptions fromCommitTimestamp(Instant commitTimestamp) {
+        return new StartOptions(0, Objects.requireNonNull(commitTimestamp, "commitTimestamp"), false);
+    }
+
+    /**
+     * Stream the changes through a temporary replication slot, created when streaming starts and dropped by the server
+     * as soon as the stream is stopped, for one-off runs that must not leave a slot behind.
+     * The temporary slot is created with the configured replication slot name, which must not be in use by another slot.
+     * A new slot streams only the changes committed after it was created. Requires PostgreSQL 10 or later.
+     *
+     * @return a copy of these options that stream through a temporary replication slot.
+     */
+    public StartOptions inTemporarySlot() {
+        return new StartOptions(lsn, commitTimestamp, true);
+    }
+
+    boolean isConfirmedPosition() {
+        return lsn == 0 && commitTimestamp == null && !temporarySlot;
+    }
+
+    long lsn() {
+        return lsn;
+    }
+
+    Instant commitTimestamp() {
+        return commitTimestamp;
+    }
+
+    boolean temporarySlot() {
+        return temporarySlot;
+    }
+}
@@ -0,0 +1,147 @@
+package io.github.rieske.cdc;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Tuning options of the replication stream consumption.
+ * Instances are immutable - the {@code with*} methods return modified copies.
+ */
+public final class StreamOptions {
+    private static final int DEFAULT_LARGE_VALUE_THRESHOLD = 1024 * 1024;
+    private static final long DEFAULT_MAX_IN_FLIGHT_BYTES = Long.MAX_VALUE;
+
+    private final int largeValueThreshold;
+    private final long maxInFlightBytes;
+    private final ChangePredicate filter;
+    private final Duration coalescingWindow;
+    private final int coalescingMaxChanges;
+
+    private StreamOptions(
+            int largeValueThreshold,
+            long maxInFlightBytes,
+            ChangePredicate filter,
+            Duration coalescingWindow,
+            int coalescingMaxChanges
+    ) {
+        if (largeValueThreshold < 0) {
+            throw new IllegalArgumentException("Large value threshold can not be negative, got " + largeValueThreshold);
+        }
+        if (maxInFlightBytes < 1) {
+            throw new IllegalArgumentException("Max in-flight bytes must be positive, got " + maxInFlightBytes);
+        }
+        this.largeValueThreshold = largeValueThreshold;
+        this.maxInFlightBytes = maxInFlightBytes;
+        this.filter = filter;
+        this.coalescingWindow = coalescingWindow;
+        this.coalescingMaxChanges = coalescingMaxChanges;
+    }
+
+    /**
+     * Create stream options with the defaults: 1 MiB large value threshold, no limit on in-flight bytes, no filter and no coalescing.
+     *
+     * @return the default stream options.
+     */
+    public static StreamOptions defaults() {
+        return new StreamOptions(DEFAULT_LARGE_VALUE_THRESHOLD, DEFAULT_MAX_IN_FLIGHT_BYTES, null, null, 0);
+    }
+
+    /**
+     * String (e.g. TEXT or JSON) column values larger than this threshold are not materialized when the change is decoded.
+     * They are decoded from the message bytes on each access via {@link DatabaseChange#columns()},
+     * or streamed without copying via {@link DatabaseChange#columnValueStream(String)}.
+     *
+     * @param largeValueThreshold the size of the encoded column value in bytes.
+     *
+     * @return a copy of these options with the given large value threshold.
+     */
+    public StreamOptions withLargeValueThreshold(int largeValueThreshold) {
+        return new StreamOptions(largeValueThreshold, maxInFlightBytes, filter, coalescingWindow, coalescingMaxChanges);
+    }
+
+    /**
+     * Limits the total size of the messages that were read from the replication stream but not yet acknowledged.
+     * Once the limit is reached, the listener stops reading from the stream until the consumer processes the changes it holds.
+     * Only consumers that hold on to changes, e.g. batching ones or publishers awaiting confirmation, can reach the limit.
+     *
+     * @param maxInFlightBytes the limit in bytes. A single message larger than the limit is still delivered.
+     *
+     * @return a copy of these options with the given limit.
+     */
+    public StreamOptions withMaxInFlightBytes(long maxInFlightBytes) {
+        return new StreamOptions(largeValueThreshold, maxInFlightBytes, filter, coalescingWindow, coalescingMaxChanges);
+    }
+
+    /**
+     * Delivers only the changes matching the filter. The filter is evaluated on the replication message bytes,
+     * so the changes that do not match are skipped without being decoded. Their position in the replication stream
+     * is still acknowledged, so skipped changes do not hold back the replication slot.
+     *
+     * @param filter the condition the delivered changes must match.
+     *
+     * @return a copy of these options with the given filter.
+     */
+    public StreamOptions withFilter(ChangePredicate filter) {
+        return new StreamOptions(
+                largeValueThreshold,
+                maxInFlightBytes,
+                Objects.requireNonNull(filter, "filter"),
+                coalescingWindow,
+                coalescingMaxChanges
+        );
+    }
+
+    /**
+     * Keeps only the latest change per row (table and primary key) within a window, for consumers that only need the latest
+     * state of each row. The changes of a row within the window are folded into the one that takes the row from its state
+     * before the window to its state after it: INSERT and UPDATE yield an INSERT, INSERT and DELETE yield nothing,
+     * UPDATE and DELETE yield a DELETE, DELETE and INSERT yield an UPDATE. The folded change carries the latest value of
+     * each column, including the unchanged TOASTed values that wal2json leaves out of an UPDATE, as long as an earlier
+     * change of the row in the window carried them. The coalesced changes are delivered when
+     * the window closes, in the order of their last change, and the replication stream is then acknowledged up to the last change
+     * in the window. A window opens with the first change after the previous one closed, and closes once either limit is reached.
+     * <p>
+     * Changes of tables without a primary key are delivered as they are at the window close. A TRUNCATE, or an UPDATE that
+     * changes the primary key, closes the window before being delivered. Coalescing applies only to consumers of
+     * {@link DatabaseChange}s created with {@link ChangeDataCapture#create(String, String, String, String, java.util.Set, StreamOptions, java.util.function.Consumer)},
+     * and requires wal2json 2.4 or newer for the primary key information. The other factories that take stream options reject it.
+     *
+     * @param window the time after which the window closes.
+     * @param maxChanges the number of changes received after which the window closes.
+     *
+     * @return a copy of these options with coalescing enabled.
+     */
+    public StreamOptions withCoalescing(Duration window, int maxChanges) {
+        Objects.requireNonNull(window, "window");
+        if (window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("Coalescing window must be positive, got " + window);
+        }
+        if (maxChanges < 1) {
+            throw new IllegalArgumentException("Coalescing max changes must be positive, got " + maxChanges);
+        }
+        return new StreamOptions(largeValueThreshold, maxInFlightBytes, filter, window, maxChanges);
+    }
+
+    int largeValueThreshold() {
+        return largeValueThreshold;
+    }
+
+    long maxInFlightBytes() {
+        return maxInFlightBytes;
+    }
+
+    ChangePredicate filter() {
+        return filter;
+    }
+
+    /**
+     * @return the coalescing window, null if coalescing is disabled.
+     */
+    Duration coalescingWindow() {
+        return coalescingWindow;
+    }
+
+    int coalescingMaxChanges() {
+        return coalescingMaxChanges;
+    }
+}
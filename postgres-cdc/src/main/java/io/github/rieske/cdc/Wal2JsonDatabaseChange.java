@@ -0,0 +1,221 @@
+package io.github.rieske.cdc;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A DatabaseChange read directly from the wal2json message bytes.
+ * Column values larger than the configured threshold are not materialized as Strings -
+ * they are kept as offsets into the message and are only decoded when accessed.
+ */
+class Wal2JsonDatabaseChange implements DatabaseChange {
+    private static final byte[] ACTION = Wal2JsonReader.ascii("action");
+    private static final byte[] SCHEMA = Wal2JsonReader.ascii("schema");
+    private static final byte[] TABLE = Wal2JsonReader.ascii("table");
+
+    private final byte[] bytes;
+    private final Action action;
+    private final String schema;
+    private final String table;
+    private final Columns columns;
+
+    Wal2JsonDatabaseChange(Wal2JsonMessage message, int largeValueThreshold) {
+        this.bytes = message.bytes();
+        Wal2JsonReader reader = message.reader();
+        String actionCode = null;
+        String schema = null;
+        String table = null;
+        Columns columns = null;
+        Columns identity = null;
+        reader.beginObject();
+        while (reader.nextField()) {
+            if (reader.fieldIs(ACTION)) {
+                actionCode = reader.readString();
+            } else if (reader.fieldIs(SCHEMA)) {
+                schema = reader.readString();
+            } else if (reader.fieldIs(TABLE)) {
+                table = reader.readString();
+            } else if (reader.fieldIs(Wal2JsonReader.COLUMNS)) {
+                columns = readColumns(reader, largeValueThreshold);
+            } else if (reader.fieldIs(Wal2JsonReader.IDENTITY)) {
+                identity = readColumns(reader, largeValueThreshold);
+            } else {
+                reader.skipValue();
+            }
+        }
+        this.action = Wal2JsonMessage.action(actionCode);
+        this.schema = schema;
+        this.table = table;
+        this.columns = columns != null ? columns : identity != null ? identity : new Columns();
+    }
+
+    private Columns readColumns(Wal2JsonReader reader, int largeValueThreshold) {
+        Columns columns = new Columns();
+        reader.beginColumns();
+        while (reader.nextColumn()) {
+            int start = reader.valueStart();
+            int end = reader.valueEnd();
+            if (bytes[start] == '"' && end - start > largeValueThreshold) {
+                columns.add(reader.columnName(), null, start, end);
+                reader.skipValue();
+            } else {
+                columns.add(reader.columnName(), reader.readString(), -1, -1);
+            }
+        }
+        return columns;
+    }
+
+    @Override
+    public Action action() {
+        return action;
+    }
+
+    @Override
+    public String schema() {
+        return schema;
+    }
+
+    @Override
+    public String table() {
+        return table;
+    }
+
+    @Override
+    public Map<String, String> columns() {
+        return columns;
+    }
+
+    @Override
+    public InputStream columnValueStream(String column) {
+        Integer index = columns.index.get(column);
+        if (index == null) {
+            return null;
+        }
+        int start = columns.largeValueStarts[index];
+        if (start < 0) {
+            String value = columns.values.get(index);
+            return value == null ? null : new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8));
+        }
+        return new JsonStringInputStream(bytes, start + 1, columns.largeValueEnds[index] - 1);
+    }
+
+    @Override
+    public String toString() {
+        return "DatabaseChange{" +
+                "action='" + action + '\'' +
+                ", schema='" + schema + '\'' +
+                ", table='" + table + '\'' +
+                ", columns=" + columns +
+                '}';
+    }
+
+    private class Columns extends AbstractMap<String, String> {
+        private final Map<String, Integer> index = new HashMap<>();
+        private final List<String> names = new ArrayList<>();
+        private final List<String> values = new ArrayList<>();
+        private int[] largeValueStarts = new int[16];
+        private int[] largeValueEnds = new int[16];
+
+        void add(String name, String value, int largeValueStart, int largeValueEnd) {
+            int i = names.size();
+            if (i == largeValueStarts.length) {
+                largeValueStarts = Arrays.copyOf(largeValueStarts, i * 2);
+                largeValueEnds = Arrays.copyOf(largeValueEnds, i * 2);
+            }
+            index.put(name, i);
+            names.add(name);
+            values.add(value);
+            largeValueStarts[i] = largeValueStart;
+            largeValueEnds[i] = largeValueEnd;
+        }
+
+        @Override
+        public String get(Object key) {
+            Integer i = index.get(key);
+            return i == null ? null : valueAt(i);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return index.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return names.size();
+        }
+
+        @Override
+        public Set<String> keySet() {
+            // the names alone, without decoding the large values the way iterating the entries does
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<String> iterator() {
+                    return Collections.unmodifiableList(names).iterator();
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    return index.containsKey(o);
+                }
+
+                @Override
+                public int size() {
+                    return names.size();
+                }
+            };
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, String>> iterator() {
+                    return new Iterator<>() {
+                        private int next;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < names.size();
+                        }
+
+                        @Override
+                        public Entry<String, String> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int i = next++;
+                            return new SimpleImmutableEntry<>(names.get(i), valueAt(i));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return names.size();
+                }
+            };
+        }
+
+        private String valueAt(int i) {
+            int start = largeValueStarts[i];
+            if (start < 0) {
+                return values.get(i);
+            }
+            // large values are decoded on every access so that they are not retained on top of the message bytes
+            return Wal2JsonReader.decode(bytes, start, largeValueEnds[i]);
+        }
+    }
+}
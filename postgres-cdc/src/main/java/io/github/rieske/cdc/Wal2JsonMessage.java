@@ -0,0 +1,153 @@
+package io.github.rieske.cdc;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.ChronoField;
+
+class Wal2JsonMessage implements RawDatabaseChange {
+    private static final byte[] ACTION = Wal2JsonReader.ascii("action");
+    private static final byte[] SCHEMA = Wal2JsonReader.ascii("schema");
+    private static final byte[] TABLE = Wal2JsonReader.ascii("table");
+    private static final byte[] TIMESTAMP = Wal2JsonReader.ascii("timestamp");
+
+    // timestamptz as rendered by wal2json, e.g. "2024-01-31 10:15:30.123456+00"
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = new DateTimeFormatterBuilder()
+            .appendPattern("yyyy-MM-dd HH:mm:ss")
+            .optionalStart()
+            .appendFraction(ChronoField.NANO_OF_SECOND, 0, 9, true)
+            .optionalEnd()
+            .appendOffset("+HH:mm", "Z")
+            .toFormatter();
+
+    private final long sequence;
+    private final long lsn;
+    private final byte[] bytes;
+    private final int offset;
+    private final int length;
+
+    private DatabaseChange.Action action;
+    private String schema;
+    private String table;
+    private String timestamp;
+
+    /**
+     * @param sequence the position of the message in the order of delivery from the replication stream.
+     */
+    Wal2JsonMessage(long sequence, long lsn, ByteBuffer message) {
+        this.sequence = sequence;
+        this.lsn = lsn;
+        this.bytes = message.array();
+        this.offset = message.arrayOffset() + message.position();
+        this.length = message.remaining();
+    }
+
+    long sequence() {
+        return sequence;
+    }
+
+    @Override
+    public long lsn() {
+        return lsn;
+    }
+
+    @Override
+    public ByteBuffer payload() {
+        return ByteBuffer.wrap(bytes, offset, length).slice().asReadOnlyBuffer();
+    }
+
+    @Override
+    public DatabaseChange.Action action() {
+        peekHeader();
+        return action;
+    }
+
+    @Override
+    public String schema() {
+        peekHeader();
+        return schema;
+    }
+
+    @Override
+    public String table() {
+        peekHeader();
+        return table;
+    }
+
+    byte[] bytes() {
+        return bytes;
+    }
+
+    int offset() {
+        return offset;
+    }
+
+    int length() {
+        return length;
+    }
+
+    /**
+     * @return the commit time of the transaction that made this change, null if the message does not include it.
+     */
+    Instant commitTimestamp() {
+        peekHeader();
+        return timestamp == null ? null : OffsetDateTime.parse(timestamp, TIMESTAMP_FORMAT).toInstant();
+    }
+
+    Wal2JsonReader reader() {
+        return new Wal2JsonReader(bytes, offset, length);
+    }
+
+    private void peekHeader() {
+        if (action != null) {
+            return;
+        }
+        Wal2JsonReader reader = reader();
+        reader.beginObject();
+        String actionCode = null;
+        while ((actionCode == null || schema == null || table == null) && reader.nextField()) {
+            if (reader.fieldIs(ACTION)) {
+                actionCode = reader.readString();
+            } else if (reader.fieldIs(SCHEMA)) {
+                schema = reader.readString();
+            } else if (reader.fieldIs(TABLE)) {
+                table = reader.readString();
+            } else if (reader.fieldIs(TIMESTAMP)) {
+                // precedes the schema and table in wal2json output
+                timestamp = reader.readString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        action = action(actionCode);
+    }
+
+    static DatabaseChange.Action action(String actionCode) {
+        if (actionCode == null) {
+            throw new IllegalArgumentException("Database change action is missing");
+        }
+        switch (actionCode) {
+            case "I":
+                return DatabaseChange.Action.INSERT;
+            case "U":
+                return DatabaseChange.Action.UPDATE;
+            case "D":
+                return DatabaseChange.Action.DELETE;
+            case "T":
+                return DatabaseChange.Action.TRUNCATE;
+            default:
+                throw new IllegalArgumentException("Unrecognized database change action: " + actionCode);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RawDatabaseChange{" +
+                "lsn=" + lsn +
+                ", payload='" + new String(bytes, offset, length, StandardCharsets.UTF_8) + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,437 @@
+package io.github.rieske.cdc;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A minimal forward-only reader over a single wal2json message (format-version 2).
+ * Works directly on the bytes received from the replication stream - skipping values does not allocate,
+ * and strings are only decoded when explicitly asked for.
+ */
+final class Wal2JsonReader {
+    private static final byte[] NULL = ascii("null");
+    private static final byte[] NAME = ascii("name");
+    private static final byte[] VALUE = ascii("value");
+
+    /**
+     * Field of the new column values of INSERT and UPDATE changes.
+     */
+    static final byte[] COLUMNS = ascii("columns");
+    /**
+     * Field of the old replica identity (primary key) values. DELETE changes carry their column values only here,
+     * UPDATE changes carry it when they change the key, or always for tables with REPLICA IDENTITY FULL.
+     */
+    static final byte[] IDENTITY = ascii("identity");
+
+    private final byte[] bytes;
+    private final int end;
+    private int position;
+
+    private int fieldNameStart;
+    private int fieldNameEnd;
+
+    private int columnNameStart;
+    private int columnNameEnd;
+    private int columnValueStart = -1;
+
+    Wal2JsonReader(byte[] bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.position = offset;
+        this.end = offset + length;
+    }
+
+    void beginObject() {
+        expect('{');
+    }
+
+    /**
+     * Advances to the next field of the current object.
+     *
+     * @return true if positioned at the value of the next field, false if the end of the object was reached.
+     */
+    boolean nextField() {
+        skipWhitespace();
+        byte current = current();
+        if (current == '}') {
+            position++;
+            return false;
+        }
+        if (current == ',') {
+            position++;
+            skipWhitespace();
+        }
+        fieldNameStart = position + 1;
+        fieldNameEnd = stringEnd(position) - 1;
+        position = fieldNameEnd + 1;
+        expect(':');
+        skipWhitespace();
+        return true;
+    }
+
+    boolean fieldIs(byte[] name) {
+        return regionEquals(fieldNameStart, fieldNameEnd, name);
+    }
+
+    void beginArray() {
+        expect('[');
+    }
+
+    /**
+     * Advances to the next element of the current array.
+     *
+     * @return true if positioned at the next element, false if the end of the array was reached.
+     */
+    boolean nextElement() {
+        skipWhitespace();
+        byte current = current();
+        if (current == ']') {
+            position++;
+            return false;
+        }
+        if (current == ',') {
+            position++;
+            skipWhitespace();
+        }
+        return true;
+    }
+
+    /**
+     * Starts reading the current value as an array of columns, e.g. the value of the {@link #COLUMNS} or {@link #IDENTITY} field.
+     */
+    void beginColumns() {
+        beginArray();
+        columnValueStart = -1;
+    }
+
+    /**
+     * Advances to the value of the next column of the current column array. Skips the value of the previous column if
+     * it was not consumed, and the columns without a value. As in wal2json messages, the name must precede the value.
+     *
+     * @return true if positioned at the value of the next column, false if the end of the array was reached.
+     */
+    boolean nextColumn() {
+        if (columnValueStart != -1) {
+            if (position == columnValueStart) {
+                skipValue();
+            }
+            while (nextField()) {
+                skipValue();
+            }
+            columnValueStart = -1;
+        }
+        while (nextElement()) {
+            beginObject();
+            while (nextField()) {
+                if (fieldIs(NAME)) {
+                    columnNameStart = position;
+                    skipValue();
+                    columnNameEnd = position;
+                } else if (fieldIs(VALUE)) {
+                    columnValueStart = position;
+                    return true;
+                } else {
+                    skipValue();
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the decoded name of the column whose value the reader is positioned at.
+     */
+    String columnName() {
+        return decode(bytes, columnNameStart, columnNameEnd);
+    }
+
+    /**
+     * Compares the name of the column whose value the reader is positioned at, without decoding it.
+     *
+     * @param name the expected name, escaped as wal2json escapes it (see {@link #escaped(String)}).
+     * @return true if the column has exactly the given name.
+     */
+    boolean columnNameIs(byte[] name) {
+        return regionEquals(columnNameStart + 1, columnNameEnd - 1, name);
+    }
+
+    void skipValue() {
+        position = valueEnd(position);
+    }
+
+    /**
+     * Reads the current value as a String.
+     *
+     * @return the decoded value if it is a JSON string, null for a JSON null, and the literal text for numbers and booleans.
+     */
+    String readString() {
+        int start = position;
+        position = valueEnd(start);
+        return decode(bytes, start, position);
+    }
+
+    /**
+     * Compares the current value to a string without decoding it and without advancing.
+     *
+     * @param content the expected string content, escaped as wal2json escapes it (see {@link #escaped(String)}).
+     * @return true if the value is a JSON string with exactly the given content.
+     */
+    boolean valueIsString(byte[] content) {
+        return bytes[position] == '"'
+                && end > position + content.length + 1
+                && bytes[position + content.length + 1] == '"'
+                && regionEquals(position + 1, position + content.length + 1, content);
+    }
+
+    /**
+     * Consumes the current value and compares its text to the expected one without decoding it.
+     *
+     * @param expected the expected text, escaped as wal2json escapes it (see {@link #escaped(String)}).
+     * @param prefix whether the text only has to start with the expected one.
+     * @return true if the value is not null and its text (without quotes for strings) matches the expected one.
+     */
+    boolean readValueMatches(byte[] expected, boolean prefix) {
+        int start = position;
+        position = valueEnd(start);
+        int contentStart = start;
+        int contentEnd = position;
+        if (bytes[start] == '"') {
+            contentStart++;
+            contentEnd--;
+        } else if (regionEquals(start, position, NULL)) {
+            return false;
+        }
+        if (prefix) {
+            return contentEnd - contentStart >= expected.length
+                    && regionEquals(contentStart, contentStart + expected.length, expected);
+        }
+        return regionEquals(contentStart, contentEnd, expected);
+    }
+
+    /**
+     * @return the offset of the current value's first byte (the opening quote for strings).
+     */
+    int valueStart() {
+        return position;
+    }
+
+    /**
+     * @return the offset just past the current value's last byte, without advancing.
+     */
+    int valueEnd() {
+        return valueEnd(position);
+    }
+
+    static String decode(byte[] bytes, int start, int end) {
+        if (bytes[start] != '"') {
+            if (regionEquals(bytes, start, end, NULL)) {
+                return null;
+            }
+            return new String(bytes, start, end - start, StandardCharsets.US_ASCII);
+        }
+        int contentStart = start + 1;
+        int contentEnd = end - 1;
+        for (int i = contentStart; i < contentEnd; i++) {
+            if (bytes[i] == '\\') {
+                return unescape(bytes, contentStart, contentEnd, i);
+            }
+        }
+        return new String(bytes, contentStart, contentEnd - contentStart, StandardCharsets.UTF_8);
+    }
+
+    private static String unescape(byte[] bytes, int start, int end, int firstEscape) {
+        StringBuilder builder = new StringBuilder(end - start);
+        builder.append(new String(bytes, start, firstEscape - start, StandardCharsets.UTF_8));
+        int chunkStart = firstEscape;
+        int i = firstEscape;
+        while (i < end) {
+            if (bytes[i] != '\\') {
+                i++;
+                continue;
+            }
+            if (chunkStart < i) {
+                builder.append(new String(bytes, chunkStart, i - chunkStart, StandardCharsets.UTF_8));
+            }
+            byte escaped = bytes[i + 1];
+            if (escaped == 'u') {
+                builder.append((char) Integer.parseInt(new String(bytes, i + 2, 4, StandardCharsets.US_ASCII), 16));
+                i += 6;
+            } else {
+                builder.append(unescapedChar(escaped));
+                i += 2;
+            }
+            chunkStart = i;
+        }
+        if (chunkStart < end) {
+            builder.append(new String(bytes, chunkStart, end - chunkStart, StandardCharsets.UTF_8));
+        }
+        return builder.toString();
+    }
+
+    static char unescapedChar(byte escaped) {
+        switch (escaped) {
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case '"':
+            case '\\':
+            case '/':
+                return (char) escaped;
+            default:
+                throw new IllegalArgumentException("Unrecognized escape sequence \\" + (char) escaped);
+        }
+    }
+
+    private int valueEnd(int start) {
+        byte first = bytes[start];
+        if (first == '"') {
+            return stringEnd(start);
+        }
+        if (first == '{' || first == '[') {
+            return containerEnd(start);
+        }
+        int i = start;
+        while (i < end && !isValueTerminator(bytes[i])) {
+            i++;
+        }
+        return i;
+    }
+
+    private int stringEnd(int start) {
+        if (bytes[start] != '"') {
+            throw unexpected(start, '"');
+        }
+        int i = start + 1;
+        while (i < end) {
+            byte current = bytes[i];
+            if (current == '\\') {
+                i += 2;
+            } else if (current == '"') {
+                return i + 1;
+            } else {
+                i++;
+            }
+        }
+        throw new IllegalArgumentException("Unterminated string in wal2json message at offset " + start);
+    }
+
+    private int containerEnd(int start) {
+        int depth = 0;
+        int i = start;
+        while (i < end) {
+            byte current = bytes[i];
+            if (current == '"') {
+                i = stringEnd(i);
+                continue;
+            }
+            if (current == '{' || current == '[') {
+                depth++;
+            } else if (current == '}' || current == ']') {
+                depth--;
+                if (depth == 0) {
+                    return i + 1;
+                }
+            }
+            i++;
+        }
+        throw new IllegalArgumentException("Unterminated object or array in wal2json message at offset " + start);
+    }
+
+    private void skipWhitespace() {
+        while (position < end && isWhitespace(bytes[position])) {
+            position++;
+        }
+    }
+
+    private byte current() {
+        if (position >= end) {
+            throw new IllegalArgumentException("Unexpected end of wal2json message");
+        }
+        return bytes[position];
+    }
+
+    private void expect(char expected) {
+        skipWhitespace();
+        if (current() != expected) {
+            throw unexpected(position, expected);
+        }
+        position++;
+    }
+
+    private IllegalArgumentException unexpected(int offset, char expected) {
+        return new IllegalArgumentException("Expected '" + expected + "' at offset " + offset + " of wal2json message");
+    }
+
+    private boolean regionEquals(int start, int end, byte[] expected) {
+        return regionEquals(bytes, start, end, expected);
+    }
+
+    private static boolean regionEquals(byte[] bytes, int start, int end, byte[] expected) {
+        if (end - start != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (bytes[start + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+
+    private static boolean isValueTerminator(byte b) {
+        return b == ',' || b == '}' || b == ']' || isWhitespace(b);
+    }
+
+    /**
+     * Encodes a string the way PostgreSQL's escape_json() does it in wal2json messages, without the surrounding quotes.
+     */
+    static byte[] escaped(String value) {
+        StringBuilder builder = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\b':
+                    builder.append("\\b");
+                    break;
+                case '\f':
+                    builder.append("\\f");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                case '"':
+                    builder.append("\\\"");
+                    break;
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                default:
+                    if (c < ' ') {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+            }
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    static byte[] ascii(String name) {
+        return name.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,145 @@
+package io.github.rieske.cdc;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Drives sustained load through the change data capture and reports latency, throughput, replication lag and heap usage.
+ * Tune the load with the soak.duration (ISO-8601), soak.writers and soak.rate (changes per second) Gradle properties.
+ */
+class ChangeDataCaptureSoakTest {
+    private static final Duration DURATION = Duration.parse(System.getProperty("soak.duration", "PT1M"));
+    private static final int WRITERS = Integer.getInteger("soak.writers", 4);
+    private static final int CHANGES_PER_SECOND = Integer.getInteger("soak.rate", 2000);
+    private static final Duration DRAIN_TIMEOUT = Duration.ofMinutes(1);
+
+    // updates go to the most recently inserted rows of each writer, so that some rows are updated repeatedly
+    private static final int HOT_ROWS = 10;
+
+    private static final String[] DESTINATIONS = {"orders", "payments", "shipments"};
+
+    @RegisterExtension
+    final DatabaseExtension database = new DatabaseExtension();
+
+    private final String replicationSlotName = "cdc_soak";
+
+    private final LoadGenerator load = new LoadGenerator(database.getDataSource(), WRITERS, CHANGES_PER_SECOND);
+    private final SoakMonitor monitor = new SoakMonitor(database.getDataSource(), replicationSlotName);
+
+    @Test
+    void insertAndUpdateLoad() throws Exception {
+        List<List<UUID>> rowsByWriter = new ArrayList<>(WRITERS);
+        for (int writer = 0; writer < WRITERS; writer++) {
+            rowsByWriter.add(new ArrayList<>());
+        }
+        ChangeDataCapture cdc = ChangeDataCapture.create(
+                database.jdbcUrl(),
+                database.databaseUsername(),
+                database.databasePassword(),
+                replicationSlotName,
+                Set.of("public.test_table"),
+                change -> monitor.delivered(Long.parseLong(change.columns().get("text_field")))
+        );
+
+        soak(cdc, "insert-and-update", (connection, writer, sentAtNanos) -> {
+            List<UUID> rows = rowsByWriter.get(writer);
+            if (rows.isEmpty() || ThreadLocalRandom.current().nextBoolean()) {
+                UUID id = UUID.randomUUID();
+                insertIntoTestTable(connection, id, sentAtNanos);
+                rows.add(id);
+            } else {
+                int hotRow = rows.size() - 1 - ThreadLocalRandom.current().nextInt(Math.min(HOT_ROWS, rows.size()));
+                updateTestTable(connection, rows.get(hotRow), sentAtNanos);
+            }
+        });
+    }
+
+    @Test
+    void outboxLoad() throws Exception {
+        ChangeDataCapture cdc = ChangeDataCapture.createOutbox(
+                database.jdbcUrl(),
+                database.databaseUsername(),
+                database.databasePassword(),
+                replicationSlotName,
+                OutboxOptions.of("public.test_entity_outbox", "event_payload", "destination"),
+                (destination, payloads) -> payloads.forEach(payload -> monitor.delivered(sentAtNanos(payload)))
+        );
+
+        soak(cdc, "outbox", (connection, writer, sentAtNanos) -> insertIntoOutboxTable(
+                connection,
+                DESTINATIONS[ThreadLocalRandom.current().nextInt(DESTINATIONS.length)],
+                "{\"sentAt\":" + sentAtNanos + "}"
+        ));
+    }
+
+    private void soak(ChangeDataCapture cdc, String name, LoadGenerator.Write write) throws Exception {
+        cdc.createReplicationSlot();
+        cdc.start();
+        try {
+            monitor.start();
+            load.run(DURATION, write);
+            await().atMost(DRAIN_TIMEOUT).until(() -> monitor.deliveredChanges() >= load.writtenChanges());
+
+            Map<String, Object> parameters = new LinkedHashMap<>();
+            parameters.put("Duration", DURATION);
+            parameters.put("Writers", WRITERS);
+            parameters.put("Target rate (changes/s)", CHANGES_PER_SECOND);
+            monitor.writeReport(name, parameters, load.writtenChanges());
+
+            assertThat(monitor.deliveredChanges()).isEqualTo(load.writtenChanges());
+        } finally {
+            monitor.close();
+            cdc.stop();
+            cdc.dropReplicationSlot();
+        }
+    }
+
+    private static long sentAtNanos(String payload) {
+        return Long.parseLong(payload.substring(payload.indexOf(':') + 1, payload.lastIndexOf('}')));
+    }
+
+    private static void insertIntoTestTable(Connection connection, UUID id, long sentAtNanos) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO test_table(id, integer_field, text_field, updated_at) VALUES (?, 0, ?, now())"
+        )) {
+            statement.setObject(1, id);
+            statement.setString(2, Long.toString(sentAtNanos));
+            statement.executeUpdate();
+        }
+    }
+
+    private static void updateTestTable(Connection connection, UUID id, long sentAtNanos) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "UPDATE test_table SET integer_field = integer_field + 1, text_field = ?, updated_at = now() WHERE id = ?"
+        )) {
+            statement.setString(1, Long.toString(sentAtNanos));
+            statement.setObject(2, id);
+            statement.executeUpdate();
+        }
+    }
+
+    private static void insertIntoOutboxTable(Connection connection, String destination, String eventPayload) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO test_entity_outbox(destination, event_payload) VALUES (?, ?::json)"
+        )) {
+            statement.setString(1, destination);
+            statement.setString(2, eventPayload);
+            statement.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package io.github.rieske.cdc;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A rough size and throughput smoke report comparing forwarding decoded changes as JSON (Jackson) with the binary
+ * {@link DatabaseChangeCodec}: the encoded size, the encoding time, and the decoding time when all or only one of
+ * the columns are read. Writes the results to a codec-smoke-report file in the soak report directory.
+ * <p>
+ * This is not a benchmark: the rounds run in the test JVM without forking, after a fixed number of warm-up rounds,
+ * and the timings are single means without error bars. The sizes are exact, but the timings only show the order of
+ * magnitude and catch gross regressions - use JMH for measurements that are to be relied on.
+ */
+class DatabaseChangeCodecSmokeReport {
+    private static final int CHANGES = 10_000;
+    private static final int WARMUP_ROUNDS = 10;
+    private static final int MEASURED_ROUNDS = 20;
+
+    private static final List<String> DICTIONARY = List.of(
+            "public", "test_table", "id", "integer_field", "text_field", "varchar_field", "char_field", "decimal_field", "bool_field", "updated_at"
+    );
+
+    private static final TypeReference<Map<String, Object>> JSON_CHANGE = new TypeReference<>() {
+    };
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // consumed results, so that the measured work is not optimized away
+    private long sink;
+
+    @Test
+    void reportSizeAndTimingsComparedWithJson() throws IOException {
+        List<DatabaseChange> changes = sampleChanges();
+        List<Encoding> encodings = List.of(
+                new JsonEncoding(),
+                new CodecEncoding("binary", DatabaseChangeCodec.create()),
+                new CodecEncoding("binary, dictionary", DatabaseChangeCodec.create().withDictionary(DICTIONARY)),
+                new CodecEncoding("binary, dictionary, typed values", DatabaseChangeCodec.create().withDictionary(DICTIONARY).withTypedValues())
+        );
+
+        StringBuilder report = new StringBuilder()
+                .append("# codec-smoke-report\n\n")
+                .append("Rough timings from a single unforked run, without error bars - not a benchmark.\n\n")
+                .append("| Encoding | Bytes/change | Encode (ns/change) | Decode all columns (ns/change) | Decode one column (ns/change) |\n")
+                .append("|---|---|---|---|---|\n");
+        for (Encoding encoding : encodings) {
+            List<byte[]> encoded = new ArrayList<>(CHANGES);
+            long bytes = 0;
+            for (DatabaseChange change : changes) {
+                byte[] encodedChange = encoding.encode(change);
+                encoded.add(encodedChange);
+                bytes += encodedChange.length;
+            }
+            double encodeNanos = measure(() -> {
+                for (DatabaseChange change : changes) {
+                    sink += encoding.encode(change).length;
+                }
+            });
+            double decodeAllNanos = measure(() -> {
+                for (byte[] encodedChange : encoded) {
+                    for (String value : encoding.decode(encodedChange).values()) {
+                        sink += value == null ? 0 : value.length();
+                    }
+                }
+            });
+            double decodeOneNanos = measure(() -> {
+                for (byte[] encodedChange : encoded) {
+                    sink += encoding.decode(encodedChange).get("integer_field").length();
+                }
+            });
+            report.append("| ").append(encoding.name())
+                    .append(" | ").append(bytes / CHANGES)
+                    .append(" | ").append(format(encodeNanos))
+                    .append(" | ").append(format(decodeAllNanos))
+                    .append(" | ").append(format(decodeOneNanos))
+                    .append(" |\n");
+        }
+
+        Files.writeString(SoakMonitor.reportFile("codec-smoke-report", "md"), report);
+        // every measured round decodes at least one non-empty value
+        assertThat(sink).isPositive();
+    }
+
+    /**
+     * @return the mean time per change of the measured rounds, in nanoseconds.
+     */
+    private static double measure(Runnable round) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            round.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            round.run();
+        }
+        return (double) (System.nanoTime() - start) / MEASURED_ROUNDS / CHANGES;
+    }
+
+    private static List<DatabaseChange> sampleChanges() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<DatabaseChange> changes = new ArrayList<>(CHANGES);
+        for (int i = 0; i < CHANGES; i++) {
+            Map<String, String> columns = new LinkedHashMap<>();
+            columns.put("id", UUID.randomUUID().toString());
+            columns.put("integer_field", Integer.toString(random.nextInt(1_000_000)));
+            columns.put("text_field", "text value " + random.nextLong() + " with some more words in it to make it longer");
+            columns.put("varchar_field", "varchar");
+            columns.put("char_field", "char      ");
+            columns.put("decimal_field", random.nextInt(100_000) + "." + random.nextInt(10) + random.nextInt(10));
+            columns.put("bool_field", Boolean.toString(random.nextBoolean()));
+            columns.put("updated_at", "2024-01-31T10:15:30." + (100_000 + random.nextInt(900_000)) + "Z");
+            changes.add(new SampleChange(i % 2 == 0 ? DatabaseChange.Action.INSERT : DatabaseChange.Action.UPDATE, columns));
+        }
+        return changes;
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.1f", value);
+    }
+
+    private interface Encoding {
+        String name();
+
+        byte[] encode(DatabaseChange change);
+
+        Map<String, String> decode(byte[] encodedChange);
+    }
+
+    private class JsonEncoding implements Encoding {
+        @Override
+        public String name() {
+            return "JSON (Jackson)";
+        }
+
+        @Override
+        public byte[] encode(DatabaseChange change) {
+            Map<String, Object> jsonChange = new LinkedHashMap<>();
+            jsonChange.put("action", change.action());
+            jsonChange.put("schema", change.schema());
+            jsonChange.put("table", change.table());
+            jsonChange.put("columns", change.columns());
+            try {
+                return objectMapper.writeValueAsBytes(jsonChange);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Map<String, String> decode(byte[] encodedChange) {
+            try {
+                return (Map<String, String>) objectMapper.readValue(encodedChange, JSON_CHANGE).get("columns");
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static class CodecEncoding implements Encoding {
+        private final String name;
+        private final DatabaseChangeCodec codec;
+
+        CodecEncoding(String name, DatabaseChangeCodec codec) {
+            this.name = name;
+            this.codec = codec;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public byte[] encode(DatabaseChange change) {
+            return codec.encode(change);
+        }
+
+        @Override
+        public Map<String, String> decode(byte[] encodedChange) {
+            return codec.decode(encodedChange).columns();
+        }
+    }
+
+    private static class SampleChange implements DatabaseChange {
+        private final Action action;
+        private final Map<String, String> columns;
+
+        SampleChange(Action action, Map<String, String> columns) {
+            this.action = action;
+            this.columns = columns;
+        }
+
+        @Override
+        public Action action() {
+            return action;
+        }
+
+        @Override
+        public String schema() {
+            return "public";
+        }
+
+        @Override
+        public String table() {
+            return "test_table";
+        }
+
+        @Override
+        public Map<String, String> columns() {
+            return columns;
+        }
+    }
+}
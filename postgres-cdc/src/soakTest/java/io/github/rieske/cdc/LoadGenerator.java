@@ -0,0 +1,89 @@
+package io.github.rieske.cdc;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Commits changes at a fixed total rate from several writer connections.
+ * <p>
+ * Each write is scheduled at its intended time, and the intended time (not the time the writer got to it) is handed
+ * to the write as its send timestamp. When the database or the change consumer falls behind, the latency measured
+ * from that timestamp includes the time the write was held back, instead of hiding it (coordinated omission).
+ */
+class LoadGenerator {
+    private final DataSource dataSource;
+    private final int writers;
+    private final int changesPerSecond;
+    private final AtomicLong writtenChanges = new AtomicLong();
+
+    LoadGenerator(DataSource dataSource, int writers, int changesPerSecond) {
+        this.dataSource = dataSource;
+        this.writers = writers;
+        this.changesPerSecond = changesPerSecond;
+    }
+
+    long writtenChanges() {
+        return writtenChanges.get();
+    }
+
+    /**
+     * Runs the writers for the given duration and returns once all of them have finished.
+     */
+    void run(Duration duration, Write write) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try {
+            long intervalNanos = writers * 1_000_000_000L / changesPerSecond;
+            long startNanos = System.nanoTime();
+            long endNanos = startNanos + duration.toNanos();
+            List<Future<?>> futures = new ArrayList<>(writers);
+            for (int writer = 0; writer < writers; writer++) {
+                long firstWriteNanos = startNanos + writer * intervalNanos / writers;
+                int writerIndex = writer;
+                futures.add(executor.submit(() -> {
+                    runWriter(writerIndex, firstWriteNanos, intervalNanos, endNanos, write);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void runWriter(int writer, long firstWriteNanos, long intervalNanos, long endNanos, Write write) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(true);
+            for (long sentAtNanos = firstWriteNanos; sentAtNanos < endNanos; sentAtNanos += intervalNanos) {
+                long delay = sentAtNanos - System.nanoTime();
+                if (delay > 0) {
+                    LockSupport.parkNanos(delay);
+                }
+                write.write(connection, writer, sentAtNanos);
+                writtenChanges.incrementAndGet();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface Write {
+        /**
+         * Commits exactly one captured change.
+         *
+         * @param connection the writer's own connection, in auto-commit mode.
+         * @param writer the index of the writer, to partition the rows the writers touch.
+         * @param sentAtNanos the {@link System#nanoTime()} at which the change was due to be committed.
+         */
+        void write(Connection connection, int writer, long sentAtNanos) throws SQLException;
+    }
+}
@@ -0,0 +1,211 @@
+package io.github.rieske.cdc;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records the commit-to-delivery latency of the delivered changes and samples the replication lag and heap usage
+ * once a second, then writes a report that can be compared across releases and PostgreSQL versions.
+ */
+class SoakMonitor implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SoakMonitor.class);
+
+    private static final Duration SAMPLE_INTERVAL = Duration.ofSeconds(1);
+    private static final double NANOS_PER_MILLISECOND = 1_000_000.0;
+    // passed in by the build, so that the reports of different releases can be told apart
+    static final String VERSION = System.getProperty("soak.version", "unknown");
+    static final String REVISION = System.getProperty("soak.revision", "unknown");
+
+    private final DataSource dataSource;
+    private final String replicationSlotName;
+
+    private final Histogram latencyNanos = new ConcurrentHistogram(3);
+    private final Histogram replicationLagBytes = new Histogram(3);
+    private final Histogram heapUsedBytes = new Histogram(3);
+    private final AtomicLong deliveredChanges = new AtomicLong();
+    private final AtomicLong lastDeliveryNanos = new AtomicLong();
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    // written by the sampler thread, read only once it has finished
+    private long missedSamples;
+
+    private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+        thread.setName("soak-sampler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private long startNanos;
+
+    SoakMonitor(DataSource dataSource, String replicationSlotName) {
+        this.dataSource = dataSource;
+        this.replicationSlotName = replicationSlotName;
+    }
+
+    void start() {
+        startNanos = System.nanoTime();
+        sampler.scheduleAtFixedRate(this::sample, 0, SAMPLE_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param sentAtNanos the {@link System#nanoTime()} at which the change was due to be committed.
+     */
+    void delivered(long sentAtNanos) {
+        long now = System.nanoTime();
+        latencyNanos.recordValue(Math.max(0, now - sentAtNanos));
+        deliveredChanges.incrementAndGet();
+        lastDeliveryNanos.accumulateAndGet(now, Math::max);
+    }
+
+    long deliveredChanges() {
+        return deliveredChanges.get();
+    }
+
+    @Override
+    public void close() {
+        sampler.shutdownNow();
+    }
+
+    private void sample() {
+        heapUsedBytes.recordValue(memory.getHeapMemoryUsage().getUsed());
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT pg_wal_lsn_diff(pg_current_wal_lsn(), confirmed_flush_lsn)::bigint FROM pg_replication_slots " +
+                             "WHERE slot_name = ? AND database = current_database()"
+             )) {
+            statement.setString(1, replicationSlotName);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    replicationLagBytes.recordValue(Math.max(0, resultSet.getLong(1)));
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            // a missed sample should not fail the soak run, but it is counted in the report
+            missedSamples++;
+            LOGGER.debug("Could not sample the replication lag", e);
+        }
+    }
+
+    /**
+     * Writes a Markdown summary and the full HdrHistogram latency percentile distribution (in milliseconds) of the run
+     * to the report directory. The file names include the library version and revision, so that the reports of different
+     * builds are kept side by side.
+     */
+    void writeReport(String name, Map<String, Object> parameters, long writtenChanges) {
+        stopSampling();
+        System.gc();
+        long heapUsedAfterGc = memory.getHeapMemoryUsage().getUsed();
+        double deliverySeconds = (lastDeliveryNanos.get() - startNanos) / 1e9;
+
+        StringBuilder report = new StringBuilder()
+                .append("# ").append(name).append("\n\n")
+                .append("| Metric | Value |\n")
+                .append("|---|---|\n");
+        row(report, "Version", VERSION);
+        row(report, "Revision", REVISION);
+        row(report, "PostgreSQL", serverVersion());
+        parameters.forEach((parameter, value) -> row(report, parameter, value));
+        row(report, "Changes written", writtenChanges);
+        row(report, "Changes delivered", deliveredChanges.get());
+        row(report, "Sustained throughput (changes/s)", format(deliveredChanges.get() / deliverySeconds));
+        row(report, "Latency p50 (ms)", latencyMillis(50));
+        row(report, "Latency p90 (ms)", latencyMillis(90));
+        row(report, "Latency p99 (ms)", latencyMillis(99));
+        row(report, "Latency p99.9 (ms)", latencyMillis(99.9));
+        row(report, "Latency max (ms)", format(latencyNanos.getMaxValue() / NANOS_PER_MILLISECOND));
+        row(report, "Replication lag mean (KiB)", format(replicationLagBytes.getMean() / 1024));
+        row(report, "Replication lag max (KiB)", format(replicationLagBytes.getMaxValue() / 1024.0));
+        row(report, "Replication lag samples missed", missedSamples);
+        row(report, "Heap used max (MiB)", format(heapUsedBytes.getMaxValue() / (1024.0 * 1024)));
+        row(report, "Heap used after GC (MiB)", format(heapUsedAfterGc / (1024.0 * 1024)));
+        report.append("\nThe heap usage is of the whole test JVM, so it includes the load generator that runs in it.\n");
+
+        Path reportFile = reportFile(name, "md");
+        try {
+            Files.writeString(reportFile, report);
+            try (PrintStream distribution = new PrintStream(
+                    Files.newOutputStream(reportFile(name, "hgrm")), false, StandardCharsets.UTF_8.name()
+            )) {
+                latencyNanos.outputPercentileDistribution(distribution, NANOS_PER_MILLISECOND);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        LOGGER.info("Soak report {} was written to {}", name, reportFile.toAbsolutePath());
+    }
+
+    /**
+     * @return the path of a report file named after the report, the library version and the revision, e.g.
+     * {@code latency-0.0.2-1a2b3c4.md}, in the report directory.
+     */
+    static Path reportFile(String name, String extension) {
+        Path reportDirectory = Path.of(System.getProperty("soak.reportDir", "build/reports/soak"));
+        try {
+            Files.createDirectories(reportDirectory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return reportDirectory.resolve(name + "-" + VERSION + "-" + REVISION + "." + extension);
+    }
+
+    /**
+     * The lag and heap histograms are not thread-safe, so they are read only once the sampler has finished.
+     */
+    private void stopSampling() {
+        sampler.shutdownNow();
+        try {
+            if (!sampler.awaitTermination(30, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("The soak sampler did not stop in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the soak sampler to stop", e);
+        }
+    }
+
+    private String latencyMillis(double percentile) {
+        return format(latencyNanos.getValueAtPercentile(percentile) / NANOS_PER_MILLISECOND);
+    }
+
+    private String serverVersion() {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SHOW server_version")) {
+            return resultSet.next() ? resultSet.getString(1) : "unknown";
+        } catch (SQLException e) {
+            return "unknown";
+        }
+    }
+
+    private static void row(StringBuilder report, String metric, Object value) {
+        report.append("| ").append(metric).append(" | ").append(value).append(" |\n");
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+}
@@ -0,0 +1,224 @@
+package io.github.rieske.cdc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+class ChangeDataCapturePublisherTest {
+
+    @RegisterExtension
+    final DatabaseExtension database = new DatabaseExtension();
+
+    private final String replicationSlotName = "cdc_stream";
+
+    private final ChangeDataCapturePublisher cdc = ChangeDataCapture.createPublisher(
+            database.jdbcUrl(),
+            database.databaseUsername(),
+            database.databasePassword(),
+            replicationSlotName,
+            Set.of("public.test_entity_outbox")
+    );
+
+    private final RecordingSubscriber subscriber = new RecordingSubscriber();
+
+    @BeforeEach
+    void setup() {
+        cdc.createReplicationSlot();
+        cdc.subscribe(subscriber);
+        cdc.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        cdc.stop();
+        cdc.dropReplicationSlot();
+    }
+
+    @Test
+    void publishesOnlyAsManyChangesAsRequested() throws SQLException {
+        subscriber.subscription.request(1);
+        insertIntoOutboxTable(3);
+
+        await().atMost(Duration.ofSeconds(2)).untilAsserted(() -> assertThat(subscriber.changes).hasSize(1));
+        await().pollDelay(Duration.ofMillis(500)).untilAsserted(() -> assertThat(subscriber.changes).hasSize(1));
+
+        subscriber.subscription.request(2);
+
+        await().atMost(Duration.ofSeconds(2)).untilAsserted(() -> assertThat(subscriber.changes).hasSize(3));
+        assertThat(subscriber.changes).extracting(DatabaseChange::table).containsOnly("test_entity_outbox");
+    }
+
+    @Test
+    void acknowledgesChangeOnlyOnceSubscriberConfirmsIt() throws SQLException {
+        String lsnBeforeChange = queryString("SELECT pg_current_wal_lsn()::text");
+        subscriber.subscription.request(Long.MAX_VALUE);
+        insertIntoOutboxTable(1);
+
+        await().atMost(Duration.ofSeconds(2)).untilAsserted(() -> assertThat(subscriber.changes).hasSize(1));
+        await().pollDelay(Duration.ofMillis(500)).untilAsserted(() -> assertThat(slotConfirmedPast(lsnBeforeChange)).isFalse());
+
+        cdc.confirm(subscriber.changes.get(0));
+
+        await().atMost(Duration.ofSeconds(2)).untilAsserted(() -> assertThat(slotConfirmedPast(lsnBeforeChange)).isTrue());
+    }
+
+    @Test
+    void acknowledgesOnlyUpToFirstUnconfirmedChange() throws SQLException {
+        String lsnBeforeChanges = queryString("SELECT pg_current_wal_lsn()::text");
+        subscriber.subscription.request(2);
+        insertIntoOutboxTable(1);
+        String lsnBetweenChanges = queryString("SELECT pg_current_wal_lsn()::text");
+        insertIntoOutboxTable(1);
+
+        await().atMost(Duration.ofSeconds(2)).untilAsserted(() -> assertThat(subscriber.changes).hasSize(2));
+        cdc.confirm(subscriber.changes.get(1));
+        await().pollDelay(Duration.ofMillis(500)).untilAsserted(() -> assertThat(slotConfirmedPast(lsnBeforeChanges)).isFalse());
+
+        cdc.confirm(subscriber.changes.get(0));
+
+        await().atMost(Duration.ofSeconds(2)).untilAsserted(() -> assertThat(slotConfirmedPast(lsnBetweenChanges)).isTrue());
+    }
+
+    @Test
+    void publishesNoMoreThanMaxInFlightBytesOfUnconfirmedChanges() throws SQLException {
+        ChangeDataCapturePublisher boundedCdc = ChangeDataCapture.createPublisher(
+                database.jdbcUrl(),
+                database.databaseUsername(),
+                database.databasePassword(),
+                "cdc_bounded_stream",
+                Set.of("public.test_entity_outbox"),
+                StreamOptions.defaults().withMaxInFlightBytes(1)
+        );
+        RecordingSubscriber boundedSubscriber = new RecordingSubscriber();
+        boundedCdc.createReplicationSlot();
+        boundedCdc.subscribe(boundedSubscriber);
+        boundedCdc.start();
+        try {
+            boundedSubscriber.subscription.request(Long.MAX_VALUE);
+            insertIntoOutboxTable(3);
+
+            await().atMost(Duration.ofSeconds(2)).untilAsserted(() -> assertThat(boundedSubscriber.changes).hasSize(1));
+            await().pollDelay(Duration.ofMillis(500)).untilAsserted(() -> assertThat(boundedSubscriber.changes).hasSize(1));
+
+            boundedCdc.confirm(boundedSubscriber.changes.get(0));
+
+            await().atMost(Duration.ofSeconds(2)).untilAsserted(() -> assertThat(boundedSubscriber.changes).hasSize(2));
+        } finally {
+            boundedCdc.stop();
+            boundedCdc.dropReplicationSlot();
+        }
+    }
+
+    @Test
+    void rejectsCoalescing() {
+        assertThatThrownBy(() -> ChangeDataCapture.createPublisher(
+                database.jdbcUrl(),
+                database.databaseUsername(),
+                database.databasePassword(),
+                replicationSlotName,
+                Set.of("public.test_entity_outbox"),
+                StreamOptions.defaults().withCoalescing(Duration.ofSeconds(1), 10)
+        )).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void treatsThrowingOnNextAsCancellation() throws SQLException {
+        String lsnBeforeChange = queryString("SELECT pg_current_wal_lsn()::text");
+        RuntimeException failure = new RuntimeException("subscriber failure");
+        subscriber.onNextFailure = failure;
+        subscriber.subscription.request(2);
+        insertIntoOutboxTable(2);
+
+        await().atMost(Duration.ofSeconds(2)).untilAsserted(() -> assertThat(subscriber.error).isSameAs(failure));
+        cdc.confirm(subscriber.changes.get(0));
+        subscriber.subscription.request(1);
+        await().pollDelay(Duration.ofMillis(500)).untilAsserted(() -> {
+            assertThat(subscriber.changes).hasSize(1);
+            assertThat(slotConfirmedPast(lsnBeforeChange)).isFalse();
+        });
+    }
+
+    @Test
+    void completesSubscriptionWhenStopped() {
+        cdc.stop();
+
+        assertThat(subscriber.completed).isTrue();
+    }
+
+    @Test
+    void rejectsSecondSubscriber() {
+        RecordingSubscriber secondSubscriber = new RecordingSubscriber();
+
+        cdc.subscribe(secondSubscriber);
+
+        assertThat(secondSubscriber.error).isInstanceOf(IllegalStateException.class);
+    }
+
+    private void insertIntoOutboxTable(int count) throws SQLException {
+        try (Connection connection = database.getDataSource().getConnection(); Statement statement = connection.createStatement()) {
+            for (int i = 0; i < count; i++) {
+                statement.executeUpdate("INSERT INTO test_entity_outbox(event_payload) VALUES ('{}')");
+            }
+        }
+    }
+
+    private boolean slotConfirmedPast(String lsn) throws SQLException {
+        return Boolean.parseBoolean(queryString(
+                "SELECT (confirmed_flush_lsn > '" + lsn + "'::pg_lsn)::text FROM pg_replication_slots WHERE slot_name = '" + replicationSlotName + "'"
+        ));
+    }
+
+    private String queryString(String sql) throws SQLException {
+        try (Connection connection = database.getDataSource().getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            return resultSet.next() ? resultSet.getString(1) : null;
+        }
+    }
+
+    private static class RecordingSubscriber implements Flow.Subscriber<DatabaseChange> {
+        final List<DatabaseChange> changes = new CopyOnWriteArrayList<>();
+        volatile Flow.Subscription subscription;
+        volatile boolean completed;
+        volatile Throwable error;
+        volatile RuntimeException onNextFailure;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(DatabaseChange item) {
+            changes.add(item);
+            if (onNextFailure != null) {
+                throw onNextFailure;
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            this.error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            this.completed = true;
+        }
+    }
+}
@@ -9,9 +9,11 @@ import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Timestamp;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
@@ -131,6 +133,43 @@ class ChangeDataCaptureTest {
         assertThat(secondChange.columns().get("updated_at")).isNotEmpty();
     }
 
+    @Test
+    void capturesDeleteEventsWithKeyColumns() throws SQLException {
+        UUID id = UUID.randomUUID();
+        try (Connection connection = database.getDataSource().getConnection()) {
+            insertIntoTestTable(connection, id, 1,
+                    "text1", "varchar1", "char1", new BigDecimal("42"), false, Instant.now());
+            try (PreparedStatement statement = connection.prepareStatement("DELETE FROM test_table WHERE id=?")) {
+                statement.setObject(1, id);
+                statement.executeUpdate();
+            }
+        }
+
+        await().atMost(Duration.ofSeconds(2)).untilAsserted(() -> assertThat(gatheringConsumer.consumedMessages).hasSize(2));
+
+        DatabaseChange change = gatheringConsumer.consumedMessages.get(1);
+        assertThat(change.action()).isEqualTo(DatabaseChange.Action.DELETE);
+        assertThat(change.schema()).isEqualTo("public");
+        assertThat(change.table()).isEqualTo("test_table");
+        assertThat(change.columns()).isEqualTo(Map.of("id", id.toString()));
+    }
+
+    @Test
+    void capturesTruncateEventsWithoutColumns() throws SQLException {
+        try (Connection connection = database.getDataSource().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("TRUNCATE test_table");
+        }
+
+        await().atMost(Duration.ofSeconds(2)).untilAsserted(() -> assertThat(gatheringConsumer.consumedMessages).hasSize(1));
+
+        DatabaseChange change = gatheringConsumer.consumedMessages.get(0);
+        assertThat(change.action()).isEqualTo(DatabaseChange.Action.TRUNCATE);
+        assertThat(change.schema()).isEqualTo("public");
+        assertThat(change.table()).isEqualTo("test_table");
+        assertThat(change.columns()).isEmpty();
+    }
+
     @Test
     void listensToCommittedChangesOnly() throws SQLException {
         try (Connection connection = database.getDataSource().getConnection()) {
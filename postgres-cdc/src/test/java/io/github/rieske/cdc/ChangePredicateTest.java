@@ -0,0 +1,123 @@
+package io.github.rieske.cdc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class ChangePredicateTest {
+
+    @RegisterExtension
+    final DatabaseExtension database = new DatabaseExtension();
+
+    private final String replicationSlotName = "cdc_stream";
+
+    private final GatheringConsumer<DatabaseChange> gatheringConsumer = new GatheringConsumer<>();
+
+    private ChangeDataCapture cdc;
+
+    @AfterEach
+    void tearDown() {
+        cdc.stop();
+        cdc.dropReplicationSlot();
+    }
+
+    @Test
+    void deliversOnlyChangesMatchingColumnValue() throws SQLException {
+        startChangeDataCapture(ChangePredicate.action(DatabaseChange.Action.INSERT)
+                .and(ChangePredicate.columnEquals("destination", "orders")));
+
+        insertIntoOutboxTable("orders", "{\"id\":1}");
+        insertIntoOutboxTable("payments", "{\"id\":2}");
+        insertIntoOutboxTable("orders", "{\"id\":3}");
+        deleteFromOutboxTable();
+
+        await().atMost(Duration.ofSeconds(2)).untilAsserted(() -> assertThat(gatheringConsumer.consumedMessages).hasSize(2));
+        assertThat(gatheringConsumer.consumedMessages)
+                .extracting(change -> change.columns().get("event_payload"))
+                .containsExactly("{\"id\":1}", "{\"id\":3}");
+    }
+
+    @Test
+    void deliversChangesMatchingColumnPrefixOrTable() throws SQLException {
+        startChangeDataCapture(ChangePredicate.columnStartsWith("destination", "order")
+                .or(ChangePredicate.table("public.another_outbox")));
+
+        insertIntoOutboxTable("orders", "{\"id\":1}");
+        insertIntoOutboxTable("order-lines", "{\"id\":2}");
+        insertIntoOutboxTable("payments", "{\"id\":3}");
+        insertIntoOutboxTable(null, "{\"id\":4}");
+        try (Connection connection = database.getDataSource().getConnection(); Statement statement = connection.createStatement()) {
+            statement.executeUpdate("INSERT INTO another_outbox(event_payload) VALUES ('{\"id\":5}')");
+        }
+
+        await().atMost(Duration.ofSeconds(2)).untilAsserted(() -> assertThat(gatheringConsumer.consumedMessages).hasSize(3));
+        assertThat(gatheringConsumer.consumedMessages)
+                .extracting(change -> change.columns().get("event_payload"))
+                .containsExactly("{\"id\":1}", "{\"id\":2}", "{\"id\":5}");
+    }
+
+    @Test
+    void acknowledgesSkippedChanges() throws SQLException {
+        startChangeDataCapture(ChangePredicate.columnEquals("destination", "orders"));
+
+        insertIntoOutboxTable("orders", "{\"id\":1}");
+        await().atMost(Duration.ofSeconds(2)).untilAsserted(() -> assertThat(gatheringConsumer.consumedMessages).hasSize(1));
+        String lsnBeforeSkippedChange = queryString("SELECT pg_current_wal_lsn()::text");
+        insertIntoOutboxTable("payments", "{\"id\":2}");
+
+        await().atMost(Duration.ofSeconds(2)).until(() -> "true".equals(queryString(
+                "SELECT (confirmed_flush_lsn > '" + lsnBeforeSkippedChange + "'::pg_lsn)::text FROM pg_replication_slots WHERE slot_name = '" + replicationSlotName + "'"
+        )));
+        assertThat(gatheringConsumer.consumedMessages).hasSize(1);
+    }
+
+    private void startChangeDataCapture(ChangePredicate filter) {
+        cdc = ChangeDataCapture.create(
+                database.jdbcUrl(),
+                database.databaseUsername(),
+                database.databasePassword(),
+                replicationSlotName,
+                Set.of("public.test_entity_outbox", "public.another_outbox"),
+                StreamOptions.defaults().withFilter(filter),
+                gatheringConsumer
+        );
+        cdc.createReplicationSlot();
+        cdc.start();
+    }
+
+    private void insertIntoOutboxTable(String destination, String eventPayload) throws SQLException {
+        try (Connection connection = database.getDataSource().getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "INSERT INTO test_entity_outbox(destination, event_payload) VALUES (?, ?::json)"
+             )) {
+            statement.setString(1, destination);
+            statement.setString(2, eventPayload);
+            statement.executeUpdate();
+        }
+    }
+
+    private void deleteFromOutboxTable() throws SQLException {
+        try (Connection connection = database.getDataSource().getConnection(); Statement statement = connection.createStatement()) {
+            statement.executeUpdate("DELETE FROM test_entity_outbox");
+        }
+    }
+
+    private String queryString(String sql) throws SQLException {
+        try (Connection connection = database.getDataSource().getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            return resultSet.next() ? resultSet.getString(1) : null;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package io.github.rieske.cdc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+class ClusteredChangeDataCaptureTest {
+
+    @RegisterExtension
+    final DatabaseExtension database = new DatabaseExtension();
+
+    private final String replicationSlotNamePrefix = "cdc_cluster";
+    private final Set<String> replicationSlots = Set.of("cdc_cluster_0", "cdc_cluster_1");
+
+    private final GatheringConsumer<DatabaseChange> gatheringConsumer = new GatheringConsumer<>();
+
+    private final ClusteredReplicationListener firstNode = createNode();
+    private final ClusteredReplicationListener secondNode = createNode();
+
+    @BeforeEach
+    void setup() {
+        firstNode.createReplicationSlot();
+        firstNode.start();
+        secondNode.start(StartOptions.fromConfirmedPosition());
+    }
+
+    @AfterEach
+    void tearDown() {
+        firstNode.stop();
+        secondNode.stop();
+        firstNode.dropReplicationSlot();
+    }
+
+    @Test
+    void slotsAreSpreadAcrossNodesAndStreamedByExactlyOneNode() throws SQLException {
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> {
+            Set<String> firstNodeSlots = firstNode.ownedReplicationSlots();
+            Set<String> secondNodeSlots = secondNode.ownedReplicationSlots();
+            assertThat(firstNodeSlots).hasSize(1);
+            assertThat(secondNodeSlots).hasSize(1);
+            assertThat(firstNodeSlots).doesNotContainAnyElementsOf(secondNodeSlots);
+            Set<String> allSlots = new HashSet<>(firstNodeSlots);
+            allSlots.addAll(secondNodeSlots);
+            assertThat(allSlots).isEqualTo(replicationSlots);
+        });
+
+        insertIntoBothTables();
+
+        await().atMost(Duration.ofSeconds(2)).untilAsserted(() -> assertThat(gatheringConsumer.consumedMessages)
+                .extracting(DatabaseChange::table)
+                .containsExactlyInAnyOrder("test_table", "test_entity_outbox"));
+    }
+
+    @Test
+    void survivingNodeTakesOverTheSlotsOfStoppedNode() throws SQLException {
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> assertThat(firstNode.ownedReplicationSlots()).isNotEmpty());
+
+        firstNode.stop();
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> assertThat(secondNode.ownedReplicationSlots()).isEqualTo(replicationSlots));
+
+        insertIntoBothTables();
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> assertThat(gatheringConsumer.consumedMessages)
+                .extracting(DatabaseChange::table)
+                .containsExactlyInAnyOrder("test_table", "test_entity_outbox"));
+    }
+
+    @Test
+    void rejectsStartPositionsOtherThanConfirmedOnes() {
+        ClusteredReplicationListener node = createNode();
+
+        assertThatThrownBy(() -> node.start(StartOptions.fromLsn(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> node.start(StartOptions.fromCommitTimestamp(Instant.now())))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> node.start(StartOptions.fromConfirmedPosition().inTemporarySlot()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(node.ownedReplicationSlots()).isEmpty();
+    }
+
+    private ClusteredReplicationListener createNode() {
+        return (ClusteredReplicationListener) ChangeDataCapture.createClustered(
+                database.jdbcUrl(),
+                database.databaseUsername(),
+                database.databasePassword(),
+                replicationSlotNamePrefix,
+                Set.of("public.test_table", "public.test_entity_outbox"),
+                2,
+                gatheringConsumer
+        );
+    }
+
+    private void insertIntoBothTables() throws SQLException {
+        try (Connection connection = database.getDataSource().getConnection(); Statement statement = connection.createStatement()) {
+            statement.executeUpdate("INSERT INTO test_table(id, updated_at) VALUES (uuid_generate_v4(), now())");
+            statement.executeUpdate("INSERT INTO test_entity_outbox(event_payload) VALUES ('{}')");
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package io.github.rieske.cdc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class CoalescingTest {
+
+    @RegisterExtension
+    final DatabaseExtension database = new DatabaseExtension();
+
+    private final String replicationSlotName = "cdc_stream";
+
+    private final GatheringConsumer<DatabaseChange> gatheringConsumer = new GatheringConsumer<>();
+
+    private ChangeDataCapture cdc;
+
+    @AfterEach
+    void tearDown() {
+        cdc.stop();
+        cdc.dropReplicationSlot();
+    }
+
+    @Test
+    void deliversLatestStateOfEachRowWhenWindowCloses() throws SQLException {
+        startChangeDataCapture(Duration.ofSeconds(1), 1000);
+        UUID insertedAndUpdated = UUID.randomUUID();
+        UUID insertedAndDeleted = UUID.randomUUID();
+
+        try (Connection connection = database.getDataSource().getConnection()) {
+            insertIntoTestTable(connection, insertedAndUpdated, 1);
+            insertIntoTestTable(connection, insertedAndDeleted, 1);
+            updateTestTable(connection, insertedAndUpdated, 2);
+            updateTestTable(connection, insertedAndUpdated, 3);
+            deleteFromTestTable(connection, insertedAndDeleted);
+        }
+
+        await().atMost(Duration.ofSeconds(3)).untilAsserted(() -> assertThat(gatheringConsumer.consumedMessages).hasSize(1));
+        DatabaseChange change = gatheringConsumer.consumedMessages.get(0);
+        assertThat(change.action()).isEqualTo(DatabaseChange.Action.INSERT);
+        assertThat(change.columns()).containsEntry("id", insertedAndUpdated.toString()).containsEntry("integer_field", "3");
+    }
+
+    @Test
+    void foldsUpdatesAndDeleteOfExistingRowIntoDelete() throws SQLException {
+        startChangeDataCapture(Duration.ofMillis(200), 1000);
+        UUID id = UUID.randomUUID();
+        try (Connection connection = database.getDataSource().getConnection()) {
+            insertIntoTestTable(connection, id, 1);
+        }
+        await().atMost(Duration.ofSeconds(2)).untilAsserted(() -> assertThat(gatheringConsumer.consumedMessages).hasSize(1));
+
+        try (Connection connection = database.getDataSource().getConnection()) {
+            connection.setAutoCommit(false);
+            updateTestTable(connection, id, 2);
+            updateTestTable(connection, id, 3);
+            deleteFromTestTable(connection, id);
+            connection.commit();
+        }
+
+        await().atMost(Duration.ofSeconds(2)).untilAsserted(() -> assertThat(gatheringConsumer.consumedMessages).hasSize(2));
+        DatabaseChange change = gatheringConsumer.consumedMessages.get(1);
+        assertThat(change.action()).isEqualTo(DatabaseChange.Action.DELETE);
+        assertThat(change.columns()).isEqualTo(Map.of("id", id.toString()));
+    }
+
+    @Test
+    void keepsUnchangedToastedValuesOfFoldedUpdates() throws SQLException {
+        startChangeDataCapture(Duration.ofMillis(200), 1000);
+        UUID id = UUID.randomUUID();
+        try (Connection connection = database.getDataSource().getConnection()) {
+            insertIntoTestTable(connection, id, 1);
+        }
+        await().atMost(Duration.ofSeconds(2)).untilAsserted(() -> assertThat(gatheringConsumer.consumedMessages).hasSize(1));
+        // random, so that it does not compress below the TOAST threshold and is stored out of line
+        StringBuilder largeText = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            largeText.append(UUID.randomUUID());
+        }
+
+        try (Connection connection = database.getDataSource().getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement("UPDATE test_table SET text_field = ? WHERE id = ?")) {
+                statement.setString(1, largeText.toString());
+                statement.setObject(2, id);
+                statement.executeUpdate();
+            }
+            // wal2json leaves the unchanged TOASTed text_field out of this update
+            updateTestTable(connection, id, 2);
+            connection.commit();
+        }
+
+        await().atMost(Duration.ofSeconds(2)).untilAsserted(() -> assertThat(gatheringConsumer.consumedMessages).hasSize(2));
+        DatabaseChange change = gatheringConsumer.consumedMessages.get(1);
+        assertThat(change.action()).isEqualTo(DatabaseChange.Action.UPDATE);
+        assertThat(change.columns())
+                .containsEntry("integer_field", "2")
+                .containsEntry("text_field", largeText.toString());
+    }
+
+    @Test
+    void closesWindowAfterMaxChanges() throws SQLException {
+        startChangeDataCapture(Duration.ofHours(1), 3);
+        UUID id = UUID.randomUUID();
+
+        try (Connection connection = database.getDataSource().getConnection()) {
+            insertIntoTestTable(connection, id, 1);
+            updateTestTable(connection, id, 2);
+            updateTestTable(connection, id, 3);
+            updateTestTable(connection, id, 4);
+        }
+
+        await().atMost(Duration.ofSeconds(2)).untilAsserted(() -> assertThat(gatheringConsumer.consumedMessages).hasSize(1));
+        DatabaseChange change = gatheringConsumer.consumedMessages.get(0);
+        assertThat(change.action()).isEqualTo(DatabaseChange.Action.INSERT);
+        assertThat(change.columns()).containsEntry("integer_field", "3");
+    }
+
+    @Test
+    void deliversWindowBeforeTruncate() throws SQLException {
+        startChangeDataCapture(Duration.ofHours(1), 1000);
+        UUID id = UUID.randomUUID();
+
+        try (Connection connection = database.getDataSource().getConnection()) {
+            insertIntoTestTable(connection, id, 1);
+            updateTestTable(connection, id, 2);
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("TRUNCATE test_table");
+            }
+        }
+
+        await().atMost(Duration.ofSeconds(2)).untilAsserted(() -> assertThat(gatheringConsumer.consumedMessages).hasSize(2));
+        assertThat(gatheringConsumer.consumedMessages.get(0).action()).isEqualTo(DatabaseChange.Action.INSERT);
+        assertThat(gatheringConsumer.consumedMessages.get(0).columns()).containsEntry("integer_field", "2");
+        assertThat(gatheringConsumer.consumedMessages.get(1).action()).isEqualTo(DatabaseChange.Action.TRUNCATE);
+    }
+
+    private void startChangeDataCapture(Duration window, int maxChanges) {
+        cdc = ChangeDataCapture.create(
+                database.jdbcUrl(),
+                database.databaseUsername(),
+                database.databasePassword(),
+                replicationSlotName,
+                Set.of("public.test_table"),
+                StreamOptions.defaults().withCoalescing(window, maxChanges),
+                gatheringConsumer
+        );
+        cdc.createReplicationSlot();
+        cdc.start();
+    }
+
+    private void insertIntoTestTable(Connection connection, UUID id, int integerField) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO test_table(id, integer_field, updated_at) VALUES (?, ?, now())"
+        )) {
+            statement.setObject(1, id);
+            statement.setInt(2, integerField);
+            statement.executeUpdate();
+        }
+    }
+
+    private void updateTestTable(Connection connection, UUID id, int integerField) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "UPDATE test_table SET integer_field = ?, updated_at = now() WHERE id = ?"
+        )) {
+            statement.setInt(1, integerField);
+            statement.setObject(2, id);
+            statement.executeUpdate();
+        }
+    }
+
+    private void deleteFromTestTable(Connection connection, UUID id) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("DELETE FROM test_table WHERE id = ?")) {
+            statement.setObject(1, id);
+            statement.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package io.github.rieske.cdc;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DatabaseChangeCodecTest {
+
+    private final Map<String, String> columns = columns(
+            "id", "0d7c6c5e-3f5b-4ad1-9a4c-4b9f0f3a0e21",
+            "integer_field", "42",
+            "negative_field", "-7",
+            "zero_field", "0",
+            "padded_field", "007",
+            "signed_field", "+1",
+            "negative_zero_field", "-0",
+            "overflowing_field", "9223372036854775808",
+            "decimal_field", "42.00",
+            "bool_field", "true",
+            "uppercase_bool_field", "TRUE",
+            "empty_field", "",
+            "text_field", "ąčę \"quoted\" 😀",
+            "null_field", null
+    );
+
+    private final DatabaseChange change = new TestDatabaseChange(DatabaseChange.Action.UPDATE, "public", "test_table", columns);
+
+    @Test
+    void roundTripsChangeWithoutDictionary() {
+        DatabaseChangeCodec codec = DatabaseChangeCodec.create();
+
+        assertRoundTrips(codec, codec);
+    }
+
+    @Test
+    void roundTripsChangeWithDictionaryAndTypedValues() {
+        List<String> dictionary = List.of("public", "test_table", "id", "integer_field", "bool_field");
+        DatabaseChangeCodec encoder = DatabaseChangeCodec.create().withDictionary(dictionary).withTypedValues();
+        DatabaseChangeCodec decoder = DatabaseChangeCodec.create().withDictionary(dictionary);
+
+        assertRoundTrips(encoder, decoder);
+        assertThat(encoder.encode(change).length).isLessThan(DatabaseChangeCodec.create().encode(change).length);
+    }
+
+    @Test
+    void decodesWithAppendedDictionary() {
+        byte[] encoded = DatabaseChangeCodec.create().withDictionary(List.of("public", "test_table")).encode(change);
+
+        DatabaseChange decoded = DatabaseChangeCodec.create().withDictionary(List.of("public", "test_table", "id")).decode(encoded);
+
+        assertThat(decoded.table()).isEqualTo("test_table");
+        assertThat(decoded.columns()).isEqualTo(columns);
+    }
+
+    @Test
+    void decodesChangeAtOffset() {
+        DatabaseChangeCodec codec = DatabaseChangeCodec.create();
+        byte[] encoded = codec.encode(change);
+        byte[] framed = new byte[encoded.length + 8];
+        System.arraycopy(encoded, 0, framed, 4, encoded.length);
+
+        assertThat(codec.decode(framed, 4, encoded.length).columns()).isEqualTo(columns);
+    }
+
+    @Test
+    void streamsColumnValues() throws IOException {
+        DatabaseChangeCodec codec = DatabaseChangeCodec.create().withTypedValues();
+        DatabaseChange decoded = codec.decode(codec.encode(change));
+
+        assertThat(readFully(decoded.columnValueStream("text_field"))).isEqualTo("ąčę \"quoted\" 😀");
+        assertThat(readFully(decoded.columnValueStream("integer_field"))).isEqualTo("42");
+        assertThat(decoded.columnValueStream("null_field")).isNull();
+        assertThat(decoded.columnValueStream("missing_field")).isNull();
+    }
+
+    @Test
+    void rejectsNamesOutsideOfDictionary() {
+        byte[] encoded = DatabaseChangeCodec.create().withDictionary(List.of("public")).encode(change);
+
+        assertThatThrownBy(() -> DatabaseChangeCodec.create().decode(encoded).schema())
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsTruncatedChange() {
+        DatabaseChangeCodec codec = DatabaseChangeCodec.create();
+        byte[] encoded = codec.encode(change);
+
+        assertThatThrownBy(() -> codec.decode(Arrays.copyOf(encoded, encoded.length - 1)).columns())
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> codec.decode(Arrays.copyOf(encoded, 1)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsDuplicateDictionaryEntries() {
+        assertThatThrownBy(() -> DatabaseChangeCodec.create().withDictionary(List.of("id", "id")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void assertRoundTrips(DatabaseChangeCodec encoder, DatabaseChangeCodec decoder) {
+        DatabaseChange decoded = decoder.decode(encoder.encode(change));
+
+        assertThat(decoded.action()).isEqualTo(DatabaseChange.Action.UPDATE);
+        assertThat(decoded.schema()).isEqualTo("public");
+        assertThat(decoded.table()).isEqualTo("test_table");
+        assertThat(decoded.columns()).isEqualTo(columns);
+        assertThat(decoded.columns()).containsKey("null_field");
+    }
+
+    private static String readFully(InputStream stream) throws IOException {
+        return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, String> columns(String... namesAndValues) {
+        Map<String, String> columns = new HashMap<>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            columns.put(namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return columns;
+    }
+
+    private static class TestDatabaseChange implements DatabaseChange {
+        private final Action action;
+        private final String schema;
+        private final String table;
+        private final Map<String, String> columns;
+
+        TestDatabaseChange(Action action, String schema, String table, Map<String, String> columns) {
+            this.action = action;
+            this.schema = schema;
+            this.table = table;
+            this.columns = columns;
+        }
+
+        @Override
+        public Action action() {
+            return action;
+        }
+
+        @Override
+        public String schema() {
+            return schema;
+        }
+
+        @Override
+        public String table() {
+            return table;
+        }
+
+        @Override
+        public Map<String, String> columns() {
+            return columns;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package io.github.rieske.cdc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class LargeValueTest {
+
+    @RegisterExtension
+    final DatabaseExtension database = new DatabaseExtension();
+
+    private final String replicationSlotName = "cdc_stream";
+
+    private ChangeDataCapture cdc;
+
+    @AfterEach
+    void tearDown() {
+        cdc.stop();
+        cdc.dropReplicationSlot();
+    }
+
+    @Test
+    void streamsLargeValuesFromMessageBytes() throws SQLException, IOException {
+        GatheringConsumer<DatabaseChange> gatheringConsumer = new GatheringConsumer<>();
+        cdc = ChangeDataCapture.create(
+                database.jdbcUrl(),
+                database.databaseUsername(),
+                database.databasePassword(),
+                replicationSlotName,
+                Set.of("public.test_table"),
+                StreamOptions.defaults().withLargeValueThreshold(1024),
+                gatheringConsumer
+        );
+        cdc.createReplicationSlot();
+        cdc.start();
+
+        String largeText = "\"quoted\"\né€😀".repeat(200_000);
+        UUID id = UUID.randomUUID();
+        try (Connection connection = database.getDataSource().getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "INSERT INTO test_table(id, text_field, varchar_field, updated_at) VALUES (?, ?, ?, ?)")
+        ) {
+            statement.setObject(1, id);
+            statement.setString(2, largeText);
+            statement.setString(3, "small");
+            statement.setTimestamp(4, Timestamp.from(Instant.now()));
+            statement.executeUpdate();
+        }
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> assertThat(gatheringConsumer.consumedMessages).hasSize(1));
+
+        DatabaseChange change = gatheringConsumer.consumedMessages.get(0);
+        assertThat(change.action()).isEqualTo(DatabaseChange.Action.INSERT);
+        assertThat(change.columns().get("id")).isEqualTo(id.toString());
+        assertThat(change.columns().get("varchar_field")).isEqualTo("small");
+        assertThat(change.columns().get("integer_field")).isNull();
+        assertThat(change.columns().get("text_field")).isEqualTo(largeText);
+        try (InputStream valueStream = change.columnValueStream("text_field")) {
+            assertThat(new String(valueStream.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(largeText);
+        }
+        assertThat(change.columnValueStream("integer_field")).isNull();
+    }
+
+    @Test
+    void stopsReadingWhenInFlightBytesLimitIsReached() throws SQLException {
+        List<Map.Entry<String, List<String>>> deliveredBatches = new CopyOnWriteArrayList<>();
+        cdc = ChangeDataCapture.createOutbox(
+                database.jdbcUrl(),
+                database.databaseUsername(),
+                database.databasePassword(),
+                replicationSlotName,
+                OutboxOptions.of("public.test_entity_outbox", "event_payload", "destination")
+                        .withMaxBatchSize(3)
+                        .withMaxLinger(Duration.ofMillis(100)),
+                StreamOptions.defaults().withMaxInFlightBytes(1),
+                (destination, payloads) -> deliveredBatches.add(Map.entry(destination, payloads))
+        );
+        cdc.createReplicationSlot();
+        cdc.start();
+
+        try (Connection connection = database.getDataSource().getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "INSERT INTO test_entity_outbox (destination, event_payload) VALUES('orders', ?::json)")
+        ) {
+            for (int i = 1; i <= 3; i++) {
+                statement.setString(1, "{\"order\":" + i + "}");
+                statement.executeUpdate();
+            }
+        }
+
+        await().atMost(Duration.ofSeconds(2)).untilAsserted(() -> assertThat(deliveredBatches).containsExactly(
+                Map.entry("orders", List.of("{\"order\":1}")),
+                Map.entry("orders", List.of("{\"order\":2}")),
+                Map.entry("orders", List.of("{\"order\":3}"))
+        ));
+    }
+
+    @Test
+    void keepsReadingAfterInterleavedTransactionsWithInFlightBytesLimit() throws SQLException {
+        GatheringConsumer<DatabaseChange> gatheringConsumer = new GatheringConsumer<>();
+        cdc = ChangeDataCapture.create(
+                database.jdbcUrl(),
+                database.databaseUsername(),
+                database.databasePassword(),
+                replicationSlotName,
+                Set.of("public.test_table"),
+                StreamOptions.defaults().withMaxInFlightBytes(1),
+                gatheringConsumer
+        );
+        cdc.createReplicationSlot();
+        cdc.start();
+
+        // the first transaction writes before the second one, but commits after it - its change is delivered
+        // after the change of the second transaction, despite having the lower LSN
+        try (Connection first = database.getDataSource().getConnection();
+             Connection second = database.getDataSource().getConnection()) {
+            first.setAutoCommit(false);
+            insertIntoTestTable(first, 1);
+            insertIntoTestTable(second, 2);
+            insertIntoTestTable(first, 3);
+            first.commit();
+            insertIntoTestTable(second, 4);
+        }
+
+        await().atMost(Duration.ofSeconds(2)).untilAsserted(() -> assertThat(gatheringConsumer.consumedMessages)
+                .extracting(change -> change.columns().get("integer_field"))
+                .containsExactly("2", "1", "3", "4"));
+    }
+
+    @Test
+    void keepsReadingAfterConsumerFailureWithInFlightBytesLimit() throws SQLException {
+        GatheringConsumer<DatabaseChange> gatheringConsumer = new GatheringConsumer<>();
+        AtomicBoolean failNextChange = new AtomicBoolean(true);
+        cdc = ChangeDataCapture.create(
+                database.jdbcUrl(),
+                database.databaseUsername(),
+                database.databasePassword(),
+                replicationSlotName,
+                Set.of("public.test_table"),
+                StreamOptions.defaults().withMaxInFlightBytes(1),
+                change -> {
+                    if (failNextChange.getAndSet(false)) {
+                        throw new IllegalStateException("Consumer failure");
+                    }
+                    gatheringConsumer.accept(change);
+                }
+        );
+        cdc.createReplicationSlot();
+        cdc.start();
+
+        try (Connection connection = database.getDataSource().getConnection()) {
+            insertIntoTestTable(connection, 1);
+            insertIntoTestTable(connection, 2);
+        }
+
+        await().atMost(Duration.ofSeconds(2)).untilAsserted(() -> assertThat(gatheringConsumer.consumedMessages)
+                .extracting(change -> change.columns().get("integer_field"))
+                .containsExactly("2"));
+    }
+
+    private static void insertIntoTestTable(Connection connection, int integerField) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO test_table(id, integer_field, updated_at) VALUES (?, ?, now())"
+        )) {
+            statement.setObject(1, UUID.randomUUID());
+            statement.setInt(2, integerField);
+            statement.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package io.github.rieske.cdc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+class OutboxBatchingTest {
+
+    @RegisterExtension
+    final DatabaseExtension database = new DatabaseExtension();
+
+    private final String replicationSlotName = "cdc_stream";
+
+    private final List<Map.Entry<String, List<String>>> deliveredBatches = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean failNextDelivery = new AtomicBoolean();
+
+    private final ChangeDataCapture cdc = ChangeDataCapture.createOutbox(
+            database.jdbcUrl(),
+            database.databaseUsername(),
+            database.databasePassword(),
+            replicationSlotName,
+            OutboxOptions.of("public.test_entity_outbox", "event_payload", "destination")
+                    .withMaxBatchSize(3)
+                    .withMaxLinger(Duration.ofMillis(500)),
+            (destination, payloads) -> {
+                if (failNextDelivery.getAndSet(false)) {
+                    throw new IllegalStateException("Broker unavailable");
+                }
+                deliveredBatches.add(Map.entry(destination, List.copyOf(payloads)));
+            }
+    );
+
+    @BeforeEach
+    void setup() {
+        cdc.createReplicationSlot();
+        cdc.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        cdc.stop();
+        cdc.dropReplicationSlot();
+    }
+
+    @Test
+    void deliversFullBatchesPerDestination() throws SQLException {
+        try (Connection connection = database.getDataSource().getConnection()) {
+            insertIntoOutboxTable(connection, "orders", "{\"order\":1}");
+            insertIntoOutboxTable(connection, "payments", "{\"payment\":1}");
+            insertIntoOutboxTable(connection, "orders", "{\"order\":2}");
+            insertIntoOutboxTable(connection, "orders", "{\"order\":3}");
+        }
+
+        await().atMost(Duration.ofSeconds(2)).untilAsserted(() -> assertThat(deliveredBatches).isNotEmpty());
+
+        assertThat(deliveredBatches.get(0))
+                .isEqualTo(Map.entry("orders", List.of("{\"order\":1}", "{\"order\":2}", "{\"order\":3}")));
+    }
+
+    @Test
+    void deliversIncompleteBatchesAfterLingerTime() throws SQLException {
+        try (Connection connection = database.getDataSource().getConnection()) {
+            insertIntoOutboxTable(connection, "orders", "{\"order\":1}");
+            insertIntoOutboxTable(connection, "payments", "{\"payment\":1}");
+        }
+
+        await().atMost(Duration.ofSeconds(2)).untilAsserted(() -> assertThat(deliveredBatches).containsExactly(
+                Map.entry("orders", List.of("{\"order\":1}")),
+                Map.entry("payments", List.of("{\"payment\":1}"))
+        ));
+    }
+
+    @Test
+    void retriesFailedFullBatchWithNextEvent() throws SQLException {
+        failNextDelivery.set(true);
+        try (Connection connection = database.getDataSource().getConnection()) {
+            insertIntoOutboxTable(connection, "orders", "{\"order\":1}");
+            insertIntoOutboxTable(connection, "orders", "{\"order\":2}");
+            insertIntoOutboxTable(connection, "orders", "{\"order\":3}");
+            await().atMost(Duration.ofSeconds(2)).until(() -> !failNextDelivery.get());
+            insertIntoOutboxTable(connection, "orders", "{\"order\":4}");
+            insertIntoOutboxTable(connection, "orders", "{\"order\":5}");
+        }
+
+        await().atMost(Duration.ofSeconds(2)).untilAsserted(() -> assertThat(deliveredBatches).hasSize(2));
+        assertThat(deliveredBatches).containsExactly(
+                Map.entry("orders", List.of("{\"order\":1}", "{\"order\":2}", "{\"order\":3}", "{\"order\":4}")),
+                Map.entry("orders", List.of("{\"order\":5}"))
+        );
+    }
+
+    @Test
+    void rejectsCoalescing() {
+        assertThatThrownBy(() -> ChangeDataCapture.createOutbox(
+                database.jdbcUrl(),
+                database.databaseUsername(),
+                database.databasePassword(),
+                replicationSlotName,
+                OutboxOptions.of("public.test_entity_outbox", "event_payload", "destination"),
+                StreamOptions.defaults().withCoalescing(Duration.ofSeconds(1), 100),
+                (destination, payloads) -> {
+                }
+        )).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void stopsBeforeEventWithoutConfiguredPayloadColumn() throws SQLException {
+        String misconfiguredSlotName = "cdc_misconfigured";
+        List<List<String>> misconfiguredBatches = new CopyOnWriteArrayList<>();
+        ChangeDataCapture misconfigured = ChangeDataCapture.createOutbox(
+                database.jdbcUrl(),
+                database.databaseUsername(),
+                database.databasePassword(),
+                misconfiguredSlotName,
+                OutboxOptions.of("public.test_entity_outbox", "event_paylod", "destination")
+                        .withMaxLinger(Duration.ofMillis(100)),
+                (destination, payloads) -> misconfiguredBatches.add(List.copyOf(payloads))
+        );
+        misconfigured.createReplicationSlot();
+        misconfigured.start();
+        try {
+            String lsnBeforeEvents = queryString("SELECT pg_current_wal_lsn()::text");
+            try (Connection connection = database.getDataSource().getConnection()) {
+                insertIntoOutboxTable(connection, "orders", "{\"order\":1}");
+                insertIntoOutboxTable(connection, "orders", "{\"order\":2}");
+            }
+
+            await().atMost(Duration.ofSeconds(2)).untilAsserted(() -> assertThat(deliveredBatches).hasSize(1));
+            await().pollDelay(Duration.ofMillis(500)).untilAsserted(() -> {
+                assertThat(misconfiguredBatches).isEmpty();
+                assertThat(queryString(
+                        "SELECT (confirmed_flush_lsn > '" + lsnBeforeEvents + "'::pg_lsn)::text FROM pg_replication_slots " +
+                                "WHERE slot_name = '" + misconfiguredSlotName + "'"
+                )).isEqualTo("false");
+            });
+        } finally {
+            misconfigured.stop();
+            misconfigured.dropReplicationSlot();
+        }
+    }
+
+    private String queryString(String sql) throws SQLException {
+        try (Connection connection = database.getDataSource().getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            return resultSet.next() ? resultSet.getString(1) : null;
+        }
+    }
+
+    private void insertIntoOutboxTable(Connection connection, String destination, String eventPayload) {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO test_entity_outbox (destination, event_payload) VALUES(?, ?::json)"
+        )) {
+            statement.setString(1, destination);
+            statement.setString(2, eventPayload);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
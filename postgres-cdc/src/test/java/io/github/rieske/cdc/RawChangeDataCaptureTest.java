@@ -0,0 +1,84 @@
+package io.github.rieske.cdc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class RawChangeDataCaptureTest {
+
+    @RegisterExtension
+    final DatabaseExtension database = new DatabaseExtension();
+
+    private final String replicationSlotName = "cdc_stream";
+
+    private final GatheringConsumer<RawDatabaseChange> gatheringConsumer = new GatheringConsumer<>();
+
+    private final ChangeDataCapture cdc = ChangeDataCapture.createRaw(
+            database.jdbcUrl(),
+            database.databaseUsername(),
+            database.databasePassword(),
+            replicationSlotName,
+            Set.of("public.test_entity_outbox"),
+            gatheringConsumer
+    );
+
+    @BeforeEach
+    void setup() {
+        cdc.createReplicationSlot();
+        cdc.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        cdc.stop();
+        cdc.dropReplicationSlot();
+    }
+
+    @Test
+    void capturesRawMessagesWithHeaderAndLsn() throws SQLException {
+        try (Connection connection = database.getDataSource().getConnection()) {
+            insertIntoOutboxTable(connection, "{\"foo\":\"bar\"}");
+            insertIntoOutboxTable(connection, "{\"foo\":\"baz\"}");
+        }
+
+        await().atMost(Duration.ofSeconds(2)).untilAsserted(() -> assertThat(gatheringConsumer.consumedMessages).hasSize(2));
+
+        RawDatabaseChange firstChange = gatheringConsumer.consumedMessages.get(0);
+        assertThat(firstChange.action()).isEqualTo(DatabaseChange.Action.INSERT);
+        assertThat(firstChange.schema()).isEqualTo("public");
+        assertThat(firstChange.table()).isEqualTo("test_entity_outbox");
+        ByteBuffer payload = firstChange.payload();
+        assertThat(payload.isReadOnly()).isTrue();
+        assertThat(payload.position()).isZero();
+        String json = StandardCharsets.UTF_8.decode(payload).toString();
+        assertThat(json).startsWith("{").endsWith("}").contains("\"table\":\"test_entity_outbox\"");
+        assertThat(json).contains("{\\\"foo\\\":\\\"bar\\\"}");
+
+        RawDatabaseChange secondChange = gatheringConsumer.consumedMessages.get(1);
+        assertThat(StandardCharsets.UTF_8.decode(secondChange.payload()).toString()).contains("{\\\"foo\\\":\\\"baz\\\"}");
+        assertThat(secondChange.lsn()).isGreaterThan(firstChange.lsn());
+    }
+
+    private void insertIntoOutboxTable(Connection connection, String eventPayload) {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO test_entity_outbox (event_payload) VALUES(?::json)"
+        )) {
+            statement.setString(1, eventPayload);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package io.github.rieske.cdc;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+class StartOptionsTest {
+
+    @RegisterExtension
+    final DatabaseExtension database = new DatabaseExtension();
+
+    private final GatheringConsumer<DatabaseChange> gatheringConsumer = new GatheringConsumer<>();
+
+    @Test
+    void skipsChangesCommittedBeforeStartLsn() throws SQLException {
+        ChangeDataCapture cdc = createChangeDataCapture("cdc_stream");
+        cdc.createReplicationSlot();
+        insertIntoOutboxTable("{\"skipped\":true}");
+        String startLsn = queryString("SELECT pg_current_wal_lsn()::text");
+        insertIntoOutboxTable("{\"skipped\":false}");
+
+        cdc.start(StartOptions.fromLsn(startLsn));
+        try {
+            await().atMost(Duration.ofSeconds(2)).untilAsserted(() -> assertThat(gatheringConsumer.consumedMessages).hasSize(1));
+            assertThat(gatheringConsumer.consumedMessages.get(0).columns().get("event_payload")).isEqualTo("{\"skipped\":false}");
+        } finally {
+            cdc.stop();
+            cdc.dropReplicationSlot();
+        }
+    }
+
+    @Test
+    void skipsChangesCommittedBeforeStartTimestamp() throws SQLException {
+        ChangeDataCapture cdc = createChangeDataCapture("cdc_stream");
+        cdc.createReplicationSlot();
+        insertIntoOutboxTable("{\"skipped\":true}");
+        Instant startTimestamp = OffsetDateTime.parse(queryString("SELECT to_json(clock_timestamp())#>>'{}'")).toInstant();
+        insertIntoOutboxTable("{\"skipped\":false}");
+
+        cdc.start(StartOptions.fromCommitTimestamp(startTimestamp));
+        try {
+            await().atMost(Duration.ofSeconds(2)).untilAsserted(() -> assertThat(gatheringConsumer.consumedMessages).hasSize(1));
+            assertThat(gatheringConsumer.consumedMessages.get(0).columns().get("event_payload")).isEqualTo("{\"skipped\":false}");
+        } finally {
+            cdc.stop();
+            cdc.dropReplicationSlot();
+        }
+    }
+
+    @Test
+    void streamsThroughTemporarySlotThatIsDroppedOnStop() throws SQLException {
+        ChangeDataCapture cdc = createChangeDataCapture("cdc_temporary");
+
+        cdc.start(StartOptions.fromConfirmedPosition().inTemporarySlot());
+        try {
+            await().atMost(Duration.ofSeconds(2)).until(() -> "cdc_temporary".equals(
+                    queryString("SELECT slot_name FROM pg_replication_slots WHERE temporary AND slot_name = 'cdc_temporary'")
+            ));
+            insertIntoOutboxTable("{\"foo\":\"bar\"}");
+
+            await().atMost(Duration.ofSeconds(2)).untilAsserted(() -> assertThat(gatheringConsumer.consumedMessages).hasSize(1));
+        } finally {
+            cdc.stop();
+        }
+        await().atMost(Duration.ofSeconds(2)).until(() ->
+                queryString("SELECT slot_name FROM pg_replication_slots WHERE slot_name = 'cdc_temporary'") == null
+        );
+    }
+
+    @Test
+    void rejectsInvalidLsn() {
+        assertThatThrownBy(() -> StartOptions.fromLsn(0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> StartOptions.fromLsn(-1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> StartOptions.fromLsn("0/0")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private ChangeDataCapture createChangeDataCapture(String replicationSlotName) {
+        return ChangeDataCapture.create(
+                database.jdbcUrl(),
+                database.databaseUsername(),
+                database.databasePassword(),
+                replicationSlotName,
+                Set.of("public.test_entity_outbox"),
+                gatheringConsumer
+        );
+    }
+
+    private void insertIntoOutboxTable(String eventPayload) throws SQLException {
+        try (Connection connection = database.getDataSource().getConnection(); Statement statement = connection.createStatement()) {
+            statement.executeUpdate("INSERT INTO test_entity_outbox(event_payload) VALUES ('" + eventPayload + "')");
+        }
+    }
+
+    private String queryString(String sql) throws SQLException {
+        try (Connection connection = database.getDataSource().getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            return resultSet.next() ? resultSet.getString(1) : null;
+        }
+    }
+}
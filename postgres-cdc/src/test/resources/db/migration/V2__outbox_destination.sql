@@ -0,0 +1 @@
+ALTER TABLE test_entity_outbox ADD COLUMN destination VARCHAR(64);